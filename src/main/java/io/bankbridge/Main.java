@@ -2,22 +2,70 @@ package io.bankbridge;
 
 import static spark.Spark.port;
 
+import io.bankbridge.concurrent.VirtualThreadPool;
+import io.bankbridge.concurrent.VirtualThreads;
+import io.bankbridge.config.RemoteBanksConfig;
 import io.bankbridge.integration.BanksController;
+import org.eclipse.jetty.util.thread.ThreadPool;
 
 
 public class Main {
 
+	/**
+	 * Startup option for handling the requests and calling the remote banks on virtual threads (Java 21+), startup
+	 * fails with it on older versions
+	 */
+	public static final String VIRTUAL_THREADS_OPTION = "--virtual-threads";
+
+	private static final String KEEP_ALIVE_PROPERTY = "jdk.httpclient.keepalive.timeout";
+	private static final String CONNECTION_POOL_SIZE_PROPERTY = "jdk.httpclient.connectionPoolSize";
+
 	public static void main(String[] args) throws Exception {
 
 		//Added Option to pass the running port for Integration Test
 		int running_port = 8080;
-		if (args != null && args.length > 0) {
-			running_port = Integer.parseInt(args[0]);
+		boolean virtualThreads = false;
+		if (args != null) {
+			for (String arg : args) {
+				if (VIRTUAL_THREADS_OPTION.equals(arg)) {
+					virtualThreads = true;
+				} else {
+					running_port = Integer.parseInt(arg);
+				}
+			}
 		}
 		port(running_port);
 
+		RemoteBanksConfig remoteBanksConfig = RemoteBanksConfig.load();
+		applyConnectionPoolSettings(remoteBanksConfig.getTransport());
+		ThreadPool threadPool = null;
+		if (virtualThreads) {
+			//Refused rather than silently running the platform thread pools under the name of the virtual mode
+			if (!VirtualThreads.isSupported()) {
+				throw new IllegalStateException(VIRTUAL_THREADS_OPTION + " needs Java 21 or newer, running Java "
+						+ System.getProperty("java.version"));
+			}
+			threadPool = VirtualThreadPool.create();
+			remoteBanksConfig.getTransport().setExecutor(RemoteBanksConfig.Transport.EXECUTOR_VIRTUAL);
+		}
+
 		//Created BanksController Purpose is to add filter and all specific to Banks details.
 		//In future if accounts or something comes up they will have different filter mechanisms and steps to follow.
-		new BanksController();
+		new BanksController(remoteBanksConfig, threadPool);
+	}
+
+	/**
+	 * Connection pool of the java HttpClient is configured by JVM wide system properties, read once when the first
+	 * HttpClient is used. So they are set here, once before anything else runs, and only when they are not already
+	 * given on the command line with -D.
+	 * @param transport
+	 */
+	private static void applyConnectionPoolSettings(RemoteBanksConfig.Transport transport) {
+		if (System.getProperty(KEEP_ALIVE_PROPERTY) == null) {
+			System.setProperty(KEEP_ALIVE_PROPERTY, String.valueOf(transport.getKeepAliveSeconds()));
+		}
+		if (System.getProperty(CONNECTION_POOL_SIZE_PROPERTY) == null) {
+			System.setProperty(CONNECTION_POOL_SIZE_PROPERTY, String.valueOf(transport.getConnectionPoolSize()));
+		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,60 @@
+package io.bankbridge.concurrent;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jetty thread pool which runs every task in a new virtual thread, so blocking request handling doesn't hold
+ * a platform thread. Jetty 9.4 has no virtual thread pool of its own, this adapts the virtual thread executor.
+ * There are no idle threads to keep, so the pool is never low on threads.
+ */
+public class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool {
+
+  private final ExecutorService executor;
+
+  private VirtualThreadPool(ExecutorService executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * @return null when virtual threads are not supported in this java version
+   */
+  public static VirtualThreadPool create() {
+    ExecutorService executor = VirtualThreads.newExecutor();
+    return executor == null ? null : new VirtualThreadPool(executor);
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    executor.execute(task);
+  }
+
+  @Override
+  public void join() throws InterruptedException {
+    executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public int getThreads() {
+    return 0;
+  }
+
+  @Override
+  public int getIdleThreads() {
+    return 0;
+  }
+
+  @Override
+  public boolean isLowOnThreads() {
+    return false;
+  }
+
+  @Override
+  protected void doStop() throws Exception {
+    executor.shutdown();
+    super.doStop();
+  }
+}
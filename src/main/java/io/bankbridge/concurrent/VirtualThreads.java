@@ -0,0 +1,46 @@
+package io.bankbridge.concurrent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Virtual threads are only available from Java 21, they are created by reflection so the project can still be
+ * compiled and run with older versions. Callers check isSupported before offering a virtual thread mode, so the
+ * platform threads are never reported as virtual ones.
+ */
+public class VirtualThreads {
+
+  private static final Logger log = LoggerFactory.getLogger(VirtualThreads.class);
+
+  private VirtualThreads() {
+  }
+
+  /**
+   * @return true when this java version has virtual threads
+   */
+  public static boolean isSupported() {
+    try {
+      Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return true;
+    } catch (NoSuchMethodException exception) {
+      return false;
+    }
+  }
+
+  /**
+   * Executor which starts a new virtual thread for every task.
+   * @return null when virtual threads are not supported in this java version
+   */
+  public static ExecutorService newExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException exception) {
+      log.warn("Virtual threads are not supported in java {}, using platform threads",
+          System.getProperty("java.version"));
+      return null;
+    }
+  }
+}
@@ -0,0 +1,719 @@
+package io.bankbridge.config;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Settings used while calling the remote banks. Loaded from banks-v2-config.json which is kept next to
+ * banks-v2.json, every value has a default so the file only needs the values we want to override.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class RemoteBanksConfig {
+
+  private static final String CONFIG_FILE = "banks-v2-config.json";
+
+  /**
+   * on-demand -> banks are called while handling the request (optionally through the cache)
+   * background -> banks are polled by RemoteBanksRefresher and requests are served from its snapshot
+   */
+  public static final String MODE_ON_DEMAND = "on-demand";
+  public static final String MODE_BACKGROUND = "background";
+
+  public String mode = MODE_ON_DEMAND;
+  public Timeouts timeouts = new Timeouts();
+  public Cache cache = new Cache();
+  public Refresher refresher = new Refresher();
+  public CircuitBreaker circuitBreaker = new CircuitBreaker();
+  public Transport transport = new Transport();
+  public Hedging hedging = new Hedging();
+  public Limiter limiter = new Limiter();
+  public ResponseCache responseCache = new ResponseCache();
+  public Reload reload = new Reload();
+  public Catalog catalog = new Catalog();
+  public Snapshot snapshot = new Snapshot();
+
+  public String getMode() {
+    return mode;
+  }
+
+  public void setMode(String mode) {
+    this.mode = mode;
+  }
+
+  public boolean isBackgroundMode() {
+    return MODE_BACKGROUND.equals(mode);
+  }
+
+  public Timeouts getTimeouts() {
+    return timeouts;
+  }
+
+  public void setTimeouts(Timeouts timeouts) {
+    this.timeouts = timeouts;
+  }
+
+  public Cache getCache() {
+    return cache;
+  }
+
+  public void setCache(Cache cache) {
+    this.cache = cache;
+  }
+
+  public Refresher getRefresher() {
+    return refresher;
+  }
+
+  public void setRefresher(Refresher refresher) {
+    this.refresher = refresher;
+  }
+
+  public CircuitBreaker getCircuitBreaker() {
+    return circuitBreaker;
+  }
+
+  public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+    this.circuitBreaker = circuitBreaker;
+  }
+
+  public Transport getTransport() {
+    return transport;
+  }
+
+  public void setTransport(Transport transport) {
+    this.transport = transport;
+  }
+
+  public Hedging getHedging() {
+    return hedging;
+  }
+
+  public void setHedging(Hedging hedging) {
+    this.hedging = hedging;
+  }
+
+  public Limiter getLimiter() {
+    return limiter;
+  }
+
+  public void setLimiter(Limiter limiter) {
+    this.limiter = limiter;
+  }
+
+  public ResponseCache getResponseCache() {
+    return responseCache;
+  }
+
+  public void setResponseCache(ResponseCache responseCache) {
+    this.responseCache = responseCache;
+  }
+
+  public Reload getReload() {
+    return reload;
+  }
+
+  public void setReload(Reload reload) {
+    this.reload = reload;
+  }
+
+  public Snapshot getSnapshot() {
+    return snapshot;
+  }
+
+  public void setSnapshot(Snapshot snapshot) {
+    this.snapshot = snapshot;
+  }
+
+  public Catalog getCatalog() {
+    return catalog;
+  }
+
+  public void setCatalog(Catalog catalog) {
+    this.catalog = catalog;
+  }
+
+  /**
+   * Reads the configuration from classpath, if the file is not available default values are used.
+   * @return
+   * @throws IOException
+   */
+  public static RemoteBanksConfig load() throws IOException {
+    URL resource = Thread.currentThread().getContextClassLoader().getResource(CONFIG_FILE);
+    if (resource == null) {
+      return new RemoteBanksConfig();
+    }
+    return new ObjectMapper().readValue(resource, RemoteBanksConfig.class);
+  }
+
+  /**
+   * Timeouts for remote calls.
+   * connectMillis -> TCP connect timeout of the HttpClient
+   * perBankMillis -> maximum time we wait for a single bank
+   * deadlineMillis -> maximum time for the whole fan-out, after this we answer with the banks responded so far
+   */
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  public static class Timeouts {
+
+    public long connectMillis = 1000;
+    public long perBankMillis = 2000;
+    public long deadlineMillis = 3000;
+
+    public long getConnectMillis() {
+      return connectMillis;
+    }
+
+    public void setConnectMillis(long connectMillis) {
+      this.connectMillis = connectMillis;
+    }
+
+    public long getPerBankMillis() {
+      return perBankMillis;
+    }
+
+    public void setPerBankMillis(long perBankMillis) {
+      this.perBankMillis = perBankMillis;
+    }
+
+    public long getDeadlineMillis() {
+      return deadlineMillis;
+    }
+
+    public void setDeadlineMillis(long deadlineMillis) {
+      this.deadlineMillis = deadlineMillis;
+    }
+  }
+
+  /**
+   * Stale-while-revalidate cache of the remote bank results.
+   * freshMillis -> bank result is served from cache without any remote call
+   * staleMillis -> after fresh period result is still served for this long while it is refreshed in background
+   * refreshThreads -> threads used for the background refreshes
+   * After fresh + stale period the entry is expired and the bank is called inline again.
+   */
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  public static class Cache {
+
+    public boolean enabled = false;
+    public long freshMillis = 60000;
+    public long staleMillis = 300000;
+    public int refreshThreads = 2;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public long getFreshMillis() {
+      return freshMillis;
+    }
+
+    public void setFreshMillis(long freshMillis) {
+      this.freshMillis = freshMillis;
+    }
+
+    public long getStaleMillis() {
+      return staleMillis;
+    }
+
+    public void setStaleMillis(long staleMillis) {
+      this.staleMillis = staleMillis;
+    }
+
+    public int getRefreshThreads() {
+      return refreshThreads;
+    }
+
+    public void setRefreshThreads(int refreshThreads) {
+      this.refreshThreads = refreshThreads;
+    }
+  }
+
+  /**
+   * Background polling of the remote banks, used when mode is background.
+   * intervalMillis -> delay between two polls of the same bank
+   * bankIntervalMillis -> interval override for specific bank uris
+   * threads -> scheduler threads used for polling
+   */
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  public static class Refresher {
+
+    public long intervalMillis = 30000;
+    public Map<String, Long> bankIntervalMillis = new HashMap<>();
+    public int threads = 2;
+
+    public long getIntervalMillis() {
+      return intervalMillis;
+    }
+
+    public void setIntervalMillis(long intervalMillis) {
+      this.intervalMillis = intervalMillis;
+    }
+
+    public Map<String, Long> getBankIntervalMillis() {
+      return bankIntervalMillis;
+    }
+
+    public void setBankIntervalMillis(Map<String, Long> bankIntervalMillis) {
+      this.bankIntervalMillis = bankIntervalMillis;
+    }
+
+    public long getIntervalMillis(String uri) {
+      return bankIntervalMillis.getOrDefault(uri, intervalMillis);
+    }
+
+    public int getThreads() {
+      return threads;
+    }
+
+    public void setThreads(int threads) {
+      this.threads = threads;
+    }
+  }
+
+  /**
+   * Circuit breaker kept for every remote bank uri.
+   * windowSize -> number of latest calls used for calculating the failure rate
+   * minimumCalls -> failure rate is not evaluated before this many calls
+   * failureRateThreshold -> failure percentage which opens the circuit
+   * openMillis -> cool-down period, after this one trial call is allowed (half-open)
+   * serveLastKnownGood -> when circuit is open answer with the last successful result of the bank instead of skipping it
+   */
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  public static class CircuitBreaker {
+
+    public boolean enabled = false;
+    public int windowSize = 10;
+    public int minimumCalls = 5;
+    public int failureRateThreshold = 50;
+    public long openMillis = 30000;
+    public boolean serveLastKnownGood = true;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public int getWindowSize() {
+      return windowSize;
+    }
+
+    public void setWindowSize(int windowSize) {
+      this.windowSize = windowSize;
+    }
+
+    public int getMinimumCalls() {
+      return minimumCalls;
+    }
+
+    public void setMinimumCalls(int minimumCalls) {
+      this.minimumCalls = minimumCalls;
+    }
+
+    public int getFailureRateThreshold() {
+      return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(int failureRateThreshold) {
+      this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public long getOpenMillis() {
+      return openMillis;
+    }
+
+    public void setOpenMillis(long openMillis) {
+      this.openMillis = openMillis;
+    }
+
+    public boolean isServeLastKnownGood() {
+      return serveLastKnownGood;
+    }
+
+    public void setServeLastKnownGood(boolean serveLastKnownGood) {
+      this.serveLastKnownGood = serveLastKnownGood;
+    }
+  }
+
+  /**
+   * HTTP transport used for calling the remote banks.
+   * httpVersion -> HTTP_2 or HTTP_1_1, HTTP_2 falls back to HTTP_1_1 when bank doesn't support it
+   * executor -> default (HttpClient default executor), fixed (executorThreads threads) or virtual (virtual threads,
+   * Java 21+, the default executor is used with a warning on older versions)
+   * maxConnectionsPerHost -> maximum concurrent calls to one host, further calls wait for a free slot. 0 means no limit
+   * connectionPoolSize -> maximum idle connections kept in the pool. 0 means no limit
+   * keepAliveSeconds -> idle connection is closed after this time
+   * Connection pool settings are JVM wide system properties of the java HttpClient, which reads them once when it is
+   * first used. Main sets them at startup, before any HttpClient is created, unless they are given on the command
+   * line. They are not applied to a transport created later, for example in the tests.
+   */
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  public static class Transport {
+
+    public static final String EXECUTOR_DEFAULT = "default";
+    public static final String EXECUTOR_FIXED = "fixed";
+    public static final String EXECUTOR_VIRTUAL = "virtual";
+
+    public String httpVersion = "HTTP_2";
+    public String executor = EXECUTOR_DEFAULT;
+    public int executorThreads = 8;
+    public int maxConnectionsPerHost = 0;
+    public int connectionPoolSize = 0;
+    public long keepAliveSeconds = 1200;
+
+    public String getHttpVersion() {
+      return httpVersion;
+    }
+
+    public void setHttpVersion(String httpVersion) {
+      this.httpVersion = httpVersion;
+    }
+
+    public String getExecutor() {
+      return executor;
+    }
+
+    public void setExecutor(String executor) {
+      this.executor = executor;
+    }
+
+    public int getExecutorThreads() {
+      return executorThreads;
+    }
+
+    public void setExecutorThreads(int executorThreads) {
+      this.executorThreads = executorThreads;
+    }
+
+    public int getMaxConnectionsPerHost() {
+      return maxConnectionsPerHost;
+    }
+
+    public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+      this.maxConnectionsPerHost = maxConnectionsPerHost;
+    }
+
+    public int getConnectionPoolSize() {
+      return connectionPoolSize;
+    }
+
+    public void setConnectionPoolSize(int connectionPoolSize) {
+      this.connectionPoolSize = connectionPoolSize;
+    }
+
+    public long getKeepAliveSeconds() {
+      return keepAliveSeconds;
+    }
+
+    public void setKeepAliveSeconds(long keepAliveSeconds) {
+      this.keepAliveSeconds = keepAliveSeconds;
+    }
+  }
+
+  /**
+   * Hedged requests, when the bank is not answered within the hedge delay the same request is sent again
+   * and whichever answers successfully first is used, the other request is cancelled.
+   * delayMillis -> fixed hedge delay, 0 means the observed p95 latency of the bank is used
+   * minDelayMillis -> lower bound of the hedge delay
+   * minSamples -> observed p95 is used only after this many successful responses from the bank
+   * windowSeconds -> observed p95 covers the successful responses of the last one to two windows
+   * budgetPercent -> hedges are limited to this percentage of the requests
+   * maxBurst -> maximum number of hedges which can be saved up in the budget
+   */
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  public static class Hedging {
+
+    public boolean enabled = false;
+    public long delayMillis = 0;
+    public long minDelayMillis = 20;
+    public int minSamples = 20;
+    public long windowSeconds = 30;
+    public int budgetPercent = 10;
+    public int maxBurst = 10;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public long getDelayMillis() {
+      return delayMillis;
+    }
+
+    public void setDelayMillis(long delayMillis) {
+      this.delayMillis = delayMillis;
+    }
+
+    public long getMinDelayMillis() {
+      return minDelayMillis;
+    }
+
+    public void setMinDelayMillis(long minDelayMillis) {
+      this.minDelayMillis = minDelayMillis;
+    }
+
+    public int getMinSamples() {
+      return minSamples;
+    }
+
+    public void setMinSamples(int minSamples) {
+      this.minSamples = minSamples;
+    }
+
+    public long getWindowSeconds() {
+      return windowSeconds;
+    }
+
+    public void setWindowSeconds(long windowSeconds) {
+      this.windowSeconds = windowSeconds;
+    }
+
+    public int getBudgetPercent() {
+      return budgetPercent;
+    }
+
+    public void setBudgetPercent(int budgetPercent) {
+      this.budgetPercent = budgetPercent;
+    }
+
+    public int getMaxBurst() {
+      return maxBurst;
+    }
+
+    public void setMaxBurst(int maxBurst) {
+      this.maxBurst = maxBurst;
+    }
+  }
+
+  /**
+   * Adaptive concurrency limit of the outbound calls (AIMD).
+   * Every bank starts with initialLimit concurrent calls, the limit grows by one while the bank answers in time and is
+   * multiplied by backoffRatio when a call fails or its RTT goes above rttTolerance times the lowest observed RTT.
+   * minLimit, maxLimitPerBank -> bounds of the limit of one bank
+   * globalLimit -> maximum concurrent calls to all the banks together
+   * maxQueue -> calls waiting for a slot of one limiter, calls above it are rejected straight away
+   */
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  public static class Limiter {
+
+    public boolean enabled = false;
+    public int initialLimit = 10;
+    public int minLimit = 1;
+    public int maxLimitPerBank = 50;
+    public int globalLimit = 200;
+    public int maxQueue = 100;
+    public double backoffRatio = 0.9;
+    public double rttTolerance = 2.0;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public int getInitialLimit() {
+      return initialLimit;
+    }
+
+    public void setInitialLimit(int initialLimit) {
+      this.initialLimit = initialLimit;
+    }
+
+    public int getMinLimit() {
+      return minLimit;
+    }
+
+    public void setMinLimit(int minLimit) {
+      this.minLimit = minLimit;
+    }
+
+    public int getMaxLimitPerBank() {
+      return maxLimitPerBank;
+    }
+
+    public void setMaxLimitPerBank(int maxLimitPerBank) {
+      this.maxLimitPerBank = maxLimitPerBank;
+    }
+
+    public int getGlobalLimit() {
+      return globalLimit;
+    }
+
+    public void setGlobalLimit(int globalLimit) {
+      this.globalLimit = globalLimit;
+    }
+
+    public int getMaxQueue() {
+      return maxQueue;
+    }
+
+    public void setMaxQueue(int maxQueue) {
+      this.maxQueue = maxQueue;
+    }
+
+    public double getBackoffRatio() {
+      return backoffRatio;
+    }
+
+    public void setBackoffRatio(double backoffRatio) {
+      this.backoffRatio = backoffRatio;
+    }
+
+    public double getRttTolerance() {
+      return rttTolerance;
+    }
+
+    public void setRttTolerance(double rttTolerance) {
+      this.rttTolerance = rttTolerance;
+    }
+  }
+
+  /**
+   * Cache of the rendered responses of /v1/banks/all and /v2/banks/all (v2 only in background mode).
+   * maxEntries -> distinct queries kept per endpoint, least recently used one is evicted first
+   * Entries are dropped when the banks they were rendered from are replaced.
+   */
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  public static class ResponseCache {
+
+    public boolean enabled = false;
+    public int maxEntries = 1000;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public int getMaxEntries() {
+      return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+      this.maxEntries = maxEntries;
+    }
+  }
+
+  /**
+   * Reload of banks-v1.json and banks-v2.json without restart.
+   * directory -> directory the bank files are read from, empty means the classpath
+   * watchFiles -> reload when the files in directory change, the classpath copies are not watched
+   * debounceMillis -> changes within this period are reloaded once
+   * adminToken -> POST /admin/reload is served only when it is set, requests must send it in the X-Admin-Token header
+   */
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  public static class Reload {
+
+    public String directory = "";
+    public boolean watchFiles = false;
+    public long debounceMillis = 500;
+    public String adminToken = "";
+
+    public String getDirectory() {
+      return directory;
+    }
+
+    public void setDirectory(String directory) {
+      this.directory = directory;
+    }
+
+    public boolean isWatchFiles() {
+      return watchFiles;
+    }
+
+    public void setWatchFiles(boolean watchFiles) {
+      this.watchFiles = watchFiles;
+    }
+
+    public long getDebounceMillis() {
+      return debounceMillis;
+    }
+
+    public void setDebounceMillis(long debounceMillis) {
+      this.debounceMillis = debounceMillis;
+    }
+
+    public String getAdminToken() {
+      return adminToken;
+    }
+
+    public void setAdminToken(String adminToken) {
+      this.adminToken = adminToken;
+    }
+  }
+
+  /**
+   * Binary snapshot of the static banks catalog on local disk.
+   * enabled -> the catalog is written to path after every load and served from it at startup, as long as it was
+   * written from the same banks-v1.json
+   * path -> snapshot file, relative to the working directory
+   */
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  public static class Snapshot {
+
+    public boolean enabled = false;
+    public String path = "bank-catalog.snapshot";
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public String getPath() {
+      return path;
+    }
+
+    public void setPath(String path) {
+      this.path = path;
+    }
+  }
+
+  /**
+   * Limits of the static banks catalog. A banks file above a limit fails the load, at startup or on reload, so the
+   * catalog never drops banks to fit. Banks held and bytes used are part of /metrics along with the limits.
+   * maxBanks -> maximum number of banks
+   * maxBytes -> maximum heap bytes of the catalog columns and filter indexes
+   */
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  public static class Catalog {
+
+    public int maxBanks = 1_000_000;
+    public long maxBytes = 256L * 1024 * 1024;
+
+    public int getMaxBanks() {
+      return maxBanks;
+    }
+
+    public void setMaxBanks(int maxBanks) {
+      this.maxBanks = maxBanks;
+    }
+
+    public long getMaxBytes() {
+      return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+      this.maxBytes = maxBytes;
+    }
+  }
+}
@@ -10,18 +10,14 @@ public class ExceptionHandler {
     private static final ObjectMapper objectMapper = new ObjectMapper();
     private static final String CONTENT_TYPE = "application/json";
     private static final String CUSTOM_ERROR_MSG = "{\"message\":\"%s\"}";
+    public static final String INTERNAL_ERROR_MSG = "Internal Error from the system";
 
     public static void errorHandler() {
 
       exception(BanksCustomException.class, (exception, req, res) -> {
         res.status(exception.getStatus());
         res.type(CONTENT_TYPE);
-        ErrorResponse errorResponse = new ErrorResponse(exception.getMessage());
-        try {
-          res.body(objectMapper.writeValueAsString(errorResponse));
-        } catch (JsonProcessingException jsonProcessingException) {
-          res.body(String.format(CUSTOM_ERROR_MSG, "Not able to process the request"));
-        }
+        res.body(renderError(exception.getMessage()));
       });
 
       notFound((req, res) -> {
@@ -31,9 +27,22 @@ public class ExceptionHandler {
 
       internalServerError((req, res) -> {
         res.type(CONTENT_TYPE);
-        return String.format(CUSTOM_ERROR_MSG, "Internal Error from the system");
+        return String.format(CUSTOM_ERROR_MSG, INTERNAL_ERROR_MSG);
       });
     }
 
+  /**
+   * Error body with the given message, also used for the requests which are not handled by spark routes.
+   * @param message
+   * @return
+   */
+    public static String renderError(String message) {
+      try {
+        return objectMapper.writeValueAsString(new ErrorResponse(message));
+      } catch (JsonProcessingException jsonProcessingException) {
+        return String.format(CUSTOM_ERROR_MSG, "Not able to process the request");
+      }
+    }
+
 
 }
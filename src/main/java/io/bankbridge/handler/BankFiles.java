@@ -0,0 +1,57 @@
+package io.bankbridge.handler;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Location of banks-v1.json and banks-v2.json. They are read from the classpath unless a directory is given
+ * (reload.directory in banks-v2-config.json), then they are read from that directory. The classpath copies are
+ * build output, so only files in the directory are edited in place and watched for changes.
+ */
+public final class BankFiles {
+
+  //Directory of the bank files, null for the classpath
+  private static volatile Path directory;
+
+  private BankFiles() {
+  }
+
+  /**
+   * @param path directory of the bank files, null or empty for the classpath
+   */
+  public static void setDirectory(String path) {
+    directory = path == null || path.isEmpty() ? null : Paths.get(path).toAbsolutePath();
+  }
+
+  /**
+   * @return directory of the bank files, null when they are read from the classpath
+   */
+  public static Path getDirectory() {
+    return directory;
+  }
+
+  /**
+   * @param file name of the bank file
+   * @return
+   * @throws FileNotFoundException when the file is not in the directory or on the classpath
+   */
+  public static URL url(String file) throws IOException {
+    Path current = directory;
+    if (current != null) {
+      Path path = current.resolve(file);
+      if (!Files.isRegularFile(path)) {
+        throw new FileNotFoundException(path + " is not found");
+      }
+      return path.toUri().toURL();
+    }
+    URL resource = Thread.currentThread().getContextClassLoader().getResource(file);
+    if (resource == null) {
+      throw new FileNotFoundException(file + " is not found on the classpath");
+    }
+    return resource;
+  }
+}
@@ -0,0 +1,218 @@
+package io.bankbridge.handler;
+
+import io.bankbridge.errorhandler.BanksCustomException;
+import io.bankbridge.index.BankIndex;
+import io.bankbridge.response.BankDetails;
+import org.eclipse.jetty.http.HttpStatus;
+import spark.Request;
+import spark.utils.StringUtils;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Query params of a banks request, parsed and validated once by the before filter and attached to the request, so
+ * the handlers never look at the raw params again. Immutable, it can be shared by threads.
+ *
+ * A filter can be given more than once, a bank matches when it has any of the values. Filters of enumerated values
+ * (countrycode, auth and product) also take several values separated by comma, for example countrycode=GB,NO. Ids
+ * and names are never split, they can contain a comma. Values are matched ignoring the case of ASCII letters.
+ */
+public class BankQuery {
+
+  //Request attribute the parsed query is attached to
+  public static final String ATTRIBUTE = BankQuery.class.getName();
+  public static final String PAGE_NO = "pageNo";
+  public static final String SIZE = "size";
+  public static final String CURSOR = "cursor";
+  private static final int PAGE_SIZE = 5;
+  //Largest page, every bank of it is materialized and rendered at once
+  public static final int MAX_PAGE_SIZE = 1000;
+  private static final Set<String> FILTERS = Set.of(BankIndex.COUNTRY_CODE, BankIndex.ID, BankIndex.NAME,
+      BankIndex.AUTH, BankIndex.PRODUCT);
+  //Filters whose values never contain a comma, so a comma separates several values
+  private static final Set<String> ENUMERATED_FILTERS = Set.of(BankIndex.COUNTRY_CODE, BankIndex.AUTH,
+      BankIndex.PRODUCT);
+
+  //Filter -> distinct values, in filter name order
+  private final Map<String, List<String>> filters;
+  private final int pageNo;
+  private final int size;
+  private final PageCursor cursor;
+  private final String cursorToken;
+
+  private BankQuery(Map<String, List<String>> filters, int pageNo, int size, String cursorToken) {
+    this.filters = filters;
+    this.pageNo = pageNo;
+    this.size = size;
+    this.cursorToken = cursorToken;
+    this.cursor = cursorToken == null ? null : PageCursor.decode(cursorToken);
+  }
+
+  /**
+   * @param queryMap query params of the request, empty values are the same as missing ones
+   * @return
+   * @throws BanksCustomException with bad request status when pageNo, size or cursor is not valid
+   */
+  public static BankQuery parse(Map<String, String[]> queryMap) {
+    int pageNo;
+    int size;
+    try {
+      pageNo = StringUtils.isNotEmpty(first(queryMap, PAGE_NO)) ? Integer.parseInt(first(queryMap, PAGE_NO)) : 0;
+      if (pageNo < 0) {
+        throw new BanksCustomException(HttpStatus.BAD_REQUEST_400, "Page number is not valid!");
+      }
+      size = StringUtils.isNotEmpty(first(queryMap, SIZE)) ? Integer.parseInt(first(queryMap, SIZE)) : PAGE_SIZE;
+      if (size < 0 || size > MAX_PAGE_SIZE) {
+        throw new BanksCustomException(HttpStatus.BAD_REQUEST_400, "Page size is not valid!");
+      }
+    } catch (NumberFormatException ne) {
+      throw new BanksCustomException(HttpStatus.BAD_REQUEST_400, "pageNo and size should be integer values!");
+    }
+    Map<String, List<String>> filters = new TreeMap<>();
+    for (String filter : FILTERS) {
+      List<String> values = values(queryMap.get(filter), ENUMERATED_FILTERS.contains(filter));
+      if (!values.isEmpty()) {
+        filters.put(filter, values);
+      }
+    }
+    String cursor = first(queryMap, CURSOR);
+    return new BankQuery(Collections.unmodifiableMap(filters), pageNo, size,
+        StringUtils.isNotEmpty(cursor) ? cursor : null);
+  }
+
+  /**
+   * @param request
+   * @return query attached by the before filter, parsed now for the requests it didn't see
+   */
+  public static BankQuery of(Request request) {
+    BankQuery query = request.attribute(ATTRIBUTE);
+    return query != null ? query : parse(request.queryMap().toMap());
+  }
+
+  private static String first(Map<String, String[]> queryMap, String param) {
+    String[] values = queryMap.get(param);
+    return values == null || values.length == 0 ? null : values[0];
+  }
+
+  /**
+   * Values of every occurrence of the param, split by comma when it is enumerated. Values equal ignoring case are
+   * kept once.
+   */
+  private static List<String> values(String[] params, boolean split) {
+    if (params == null) {
+      return List.of();
+    }
+    Map<String, String> byFolded = new LinkedHashMap<>();
+    for (String param : params) {
+      for (String value : split ? param.split(",") : new String[]{param}) {
+        value = split ? value.trim() : value;
+        if (!value.isEmpty()) {
+          byFolded.putIfAbsent(BankIndex.foldCase(value), value);
+        }
+      }
+    }
+    return List.copyOf(byFolded.values());
+  }
+
+  /**
+   * @return filter -> values, only the filters given in the request
+   */
+  public Map<String, List<String>> getFilters() {
+    return filters;
+  }
+
+  public int getPageNo() {
+    return pageNo;
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * @return cursor of the page, null when the page is given by pageNo
+   */
+  public PageCursor getCursor() {
+    return cursor;
+  }
+
+  /**
+   * Canonical form of the query for the given filter fields, used as the response cache key. Filters are in name
+   * order with their values folded and sorted, pagination is always present with its defaults, so the queries
+   * answered with the same response get the same key.
+   * @param supported filter fields supported by the endpoint
+   * @return
+   */
+  public String canonical(Set<String> supported) {
+    StringBuilder query = new StringBuilder();
+    filters.forEach((filter, values) -> {
+      if (supported.contains(filter)) {
+        query.append(filter).append('=');
+        values.stream().map(BankIndex::foldCase).sorted().forEach(value ->
+            query.append(URLEncoder.encode(value, StandardCharsets.UTF_8)).append(','));
+        query.setCharAt(query.length() - 1, '&');
+      }
+    });
+    if (cursorToken != null) {
+      query.append(CURSOR).append('=').append(URLEncoder.encode(cursorToken, StandardCharsets.UTF_8));
+    } else {
+      query.append(PAGE_NO).append('=').append(pageNo);
+    }
+    return query.append('&').append(SIZE).append('=').append(size).toString();
+  }
+
+  /**
+   * Filters on the given fields as one predicate, for the banks which are not indexed. Values are folded here, so
+   * testing a bank allocates nothing.
+   * @param supported filter fields supported by the endpoint
+   * @return
+   */
+  public Predicate<BankDetails> predicate(Set<String> supported) {
+    Predicate<BankDetails> predicate = bank -> true;
+    for (Map.Entry<String, List<String>> filter : filters.entrySet()) {
+      if (supported.contains(filter.getKey())) {
+        predicate = predicate.and(anyOf(field(filter.getKey()), filter.getValue()));
+      }
+    }
+    return predicate;
+  }
+
+  private static Predicate<BankDetails> anyOf(Function<BankDetails, String> field, List<String> values) {
+    List<String> folded = new ArrayList<>();
+    values.forEach(value -> folded.add(BankIndex.foldCase(value)));
+    return bank -> {
+      String value = field.apply(bank);
+      for (String accepted : folded) {
+        if (BankIndex.equalsFolded(value, accepted)) {
+          return true;
+        }
+      }
+      return false;
+    };
+  }
+
+  private static Function<BankDetails, String> field(String filter) {
+    switch (filter) {
+      case BankIndex.COUNTRY_CODE:
+        return BankDetails::getCountryCode;
+      case BankIndex.ID:
+        return BankDetails::getId;
+      case BankIndex.NAME:
+        return BankDetails::getName;
+      case BankIndex.AUTH:
+        return BankDetails::getAuth;
+      default:
+        throw new IllegalArgumentException("Filter " + filter + " can't be tested on a single value");
+    }
+  }
+}
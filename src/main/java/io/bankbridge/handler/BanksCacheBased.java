@@ -1,81 +1,257 @@
 package io.bankbridge.handler;
 
-import static io.bankbridge.handler.BanksUtil.getCommonPredicates;
-
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.bankbridge.config.RemoteBanksConfig;
+import io.bankbridge.index.BankIndex;
+import io.bankbridge.index.CatalogSnapshot;
+import io.bankbridge.metrics.PrometheusWriter;
 import io.bankbridge.model.BankModel;
-import io.bankbridge.model.BankModelList;
 import io.bankbridge.response.BankDetails;
-import org.ehcache.Cache;
-import org.ehcache.CacheManager;
-import org.ehcache.config.builders.CacheConfigurationBuilder;
-import org.ehcache.config.builders.CacheManagerBuilder;
-import org.ehcache.config.builders.ResourcePoolsBuilder;
+import io.bankbridge.response.BanksPage;
+import io.bankbridge.response.RenderedPage;
+import io.bankbridge.response.ResponseCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 public class BanksCacheBased {
 
+	public static final String BANKS_FILE = "banks-v1.json";
+
+	private static final Logger log = LoggerFactory.getLogger(BanksCacheBased.class);
+
+	//Filters supported by the static banks
+	private static final Set<String> STATIC_FILTERS = Set.of(BankIndex.COUNTRY_CODE, BankIndex.ID, BankIndex.NAME,
+			BankIndex.PRODUCT);
 
-	public static CacheManager cacheManager;
+	//Banks of the file in compact form, sorted by id and indexed, replaced as a whole when the banks are loaded again.
+	//It is the only copy of the banks, BankDetails are created for the returned pages only
+	private static volatile Catalog catalog = new Catalog(0, BankIndex.build(List.of()));
+	//Rendered responses by canonical query, null when disabled
+	private static ResponseCache<RenderedPage> responseCache;
+	//Outcome of the last load of the banks file, null until the banks are loaded
+	private static volatile StaticBanksLoader.LoadStats lastLoad;
+	//Binary snapshot of the catalog, null when disabled
+	private static Path snapshotPath;
+	//Checksum of the banks file the snapshot on disk is built from, null when it is not known
+	private static Long snapshotChecksum;
+	//Limits of the catalog, a banks file above them is not loaded
+	private static volatile RemoteBanksConfig.Catalog limits = new RemoteBanksConfig.Catalog();
 
 	public static void init() throws Exception {
-		cacheManager = CacheManagerBuilder
-				.newCacheManagerBuilder().withCache("banks", CacheConfigurationBuilder
-						.newCacheConfigurationBuilder(String.class, BankModel.class, ResourcePoolsBuilder.heap(20)))
-				.build();
-		cacheManager.init();
-		Cache cache = cacheManager.getCache("banks", String.class, BankModel.class);
+		init(new RemoteBanksConfig());
+	}
+
+	/**
+	 * When the snapshot of the catalog is enabled and it is built from the current banks-v1.json, its catalog is
+	 * served without parsing the banks file.
+	 * @param config settings of the snapshot and the rendered response cache
+	 * @throws Exception
+	 */
+	public static synchronized void init(RemoteBanksConfig config) throws Exception {
+		RemoteBanksConfig.ResponseCache responseCacheConfig = config.getResponseCache();
+		responseCache = responseCacheConfig.isEnabled() ? new ResponseCache<>(responseCacheConfig.getMaxEntries()) : null;
+		RemoteBanksConfig.Snapshot snapshot = config.getSnapshot();
+		snapshotPath = snapshot.isEnabled() ? Paths.get(snapshot.getPath()) : null;
+		snapshotChecksum = null;
+		limits = config.getCatalog();
+		if (!loadSnapshot()) {
+			publish(prepare());
+		}
+	}
+
+	/**
+	 * Reads banks-v1.json again and publishes the new catalog. File is parsed and the catalog is built before
+	 * it is swapped in, so a request always sees either the old or the new banks. If the file can't be read
+	 * the current catalog is kept.
+	 * @return version of the published catalog
+	 * @throws IOException
+	 */
+	public static synchronized long reload() throws IOException {
+		return publish(prepare());
+	}
+
+	/**
+	 * Streams the banks of the file into a new catalog bank by bank, so neither the file nor the list of banks is held
+	 * in memory. When the same bic is in the file more than once the last one is kept. The catalog is not published,
+	 * so a reload of both bank files can read them all before publishing any.
+	 * @return catalog ready to be published
+	 * @throws IOException when the file can't be read, is not valid or is above the catalog limits
+	 */
+	static PreparedCatalog prepare() throws IOException {
+		RemoteBanksConfig.Catalog current = limits;
+		BankIndex.Builder builder = BankIndex.builder().orderByUniqueId();
+		StaticBanksLoader.LoadStats stats;
+		try {
+			stats = StaticBanksLoader.load(BankFiles.url(BANKS_FILE), model -> {
+				//Stopped as soon as the limit is passed, so an oversized file is not encoded to the end
+				if (builder.size() == current.getMaxBanks()) {
+					throw new UncheckedIOException(new IOException(
+							BANKS_FILE + " has more than catalog.maxBanks " + current.getMaxBanks() + " banks"));
+				}
+				builder.add(staticBanksMapper(model));
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		BankIndex index = builder.build();
+		checkBytes(index, current);
+		return new PreparedCatalog(index, stats);
+	}
+
+	private static void checkBytes(BankIndex index, RemoteBanksConfig.Catalog current) throws IOException {
+		if (index.estimatedBytes() > current.getMaxBytes()) {
+			throw new IOException("Catalog of " + index.size() + " banks needs " + index.estimatedBytes()
+					+ " bytes, more than catalog.maxBytes " + current.getMaxBytes());
+		}
+	}
+
+	/**
+	 * Swaps in the prepared catalog with a new version.
+	 * @param prepared
+	 * @return version of the published catalog
+	 */
+	static synchronized long publish(PreparedCatalog prepared) {
+		lastLoad = prepared.stats;
+		catalog = new Catalog(catalog.version + 1, prepared.index);
+		writeSnapshot(prepared.stats.getChecksum(), prepared.index);
+		return catalog.version;
+	}
+
+	/**
+	 * Publishes the catalog of the snapshot when it is there and built from the current banks file.
+	 * @return false when the banks file has to be loaded instead
+	 */
+	private static boolean loadSnapshot() {
+		if (snapshotPath == null || !Files.exists(snapshotPath)) {
+			return false;
+		}
+		long start = System.nanoTime();
 		try {
-			BankModelList models = new ObjectMapper().readValue(
-					Thread.currentThread().getContextClassLoader().getResource("banks-v1.json"), BankModelList.class);
-			for (BankModel model : models.banks) {
-				cache.put(model.bic, model);
+			long checksum = StaticBanksLoader.checksum(BankFiles.url(BANKS_FILE));
+			BankIndex index = CatalogSnapshot.read(snapshotPath, checksum);
+			if (index.size() > limits.getMaxBanks()) {
+				throw new IOException("Snapshot has more than catalog.maxBanks " + limits.getMaxBanks() + " banks");
 			}
-		} catch (Exception e) {
-			throw e;
+			checkBytes(index, limits);
+			snapshotChecksum = checksum;
+			catalog = new Catalog(catalog.version + 1, index);
+			log.info("Catalog of {} banks served from snapshot {}, read in {} ms", index.size(), snapshotPath,
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+			return true;
+		} catch (IOException e) {
+			log.warn("Snapshot is not used, loading {}: {}", BANKS_FILE, e.getMessage());
+			return false;
 		}
 	}
 
+	/**
+	 * Writes the snapshot unless it is already built from the same banks file, failures are only logged
+	 * because the catalog is already published.
+	 */
+	private static void writeSnapshot(long checksum, BankIndex index) {
+		if (snapshotPath == null || Long.valueOf(checksum).equals(snapshotChecksum)) {
+			return;
+		}
+		try {
+			CatalogSnapshot.write(snapshotPath, checksum, index);
+			snapshotChecksum = checksum;
+		} catch (IOException e) {
+			log.warn("Writing snapshot {} failed", snapshotPath, e);
+		}
+	}
+
+	/**
+	 * Size, bytes and version of the catalog with its limits, and the last load of the banks file when it was loaded.
+	 * @param writer
+	 */
+	public static void writeMetrics(PrometheusWriter writer) {
+		Catalog current = catalog;
+		RemoteBanksConfig.Catalog currentLimits = limits;
+		writer.family("bankbridge_catalog_banks", PrometheusWriter.GAUGE, "Banks in the static catalog")
+				.sample("bankbridge_catalog_banks", current.index.size())
+				.family("bankbridge_catalog_bytes", PrometheusWriter.GAUGE,
+						"Heap bytes of the static catalog columns and filter indexes")
+				.sample("bankbridge_catalog_bytes", current.index.estimatedBytes())
+				.family("bankbridge_catalog_max_banks", PrometheusWriter.GAUGE, "Limit of banks in the static catalog")
+				.sample("bankbridge_catalog_max_banks", currentLimits.getMaxBanks())
+				.family("bankbridge_catalog_max_bytes", PrometheusWriter.GAUGE, "Limit of bytes of the static catalog")
+				.sample("bankbridge_catalog_max_bytes", currentLimits.getMaxBytes())
+				.family("bankbridge_catalog_version", PrometheusWriter.GAUGE, "Version of the static catalog")
+				.sample("bankbridge_catalog_version", current.version);
+		StaticBanksLoader.LoadStats stats = lastLoad;
+		if (stats != null) {
+			writer.family("bankbridge_catalog_load_duration_seconds", PrometheusWriter.GAUGE,
+					"Time of the last load of the banks file")
+					.sample("bankbridge_catalog_load_duration_seconds", stats.getNanos() / 1e9)
+					.family("bankbridge_catalog_load_bytes", PrometheusWriter.GAUGE, "Size of the last loaded banks file")
+					.sample("bankbridge_catalog_load_bytes", stats.getBytes());
+		}
+	}
+
+	public static long getCatalogVersion() {
+		return catalog.version;
+	}
+
 	/**
 	 * Method for handling static Banks request
 	 * @param queryMap Map holds the details of request query params.
 	 * @return List of banks.
 	 */
 	public static List<BankDetails> handle(Map<String, String[]> queryMap) {
-		List<BankModel> result = new ArrayList<>();
-		cacheManager.getCache("banks", String.class, BankModel.class).forEach(entry -> {
-			result.add(entry.getValue());
-		});
-		Map<String, String> paramsMap = BanksUtil.getParamsMap(queryMap);
-
-		List<BankDetails> bankDetails = result.stream().map(BanksCacheBased::staticBanksMapper)
-				.collect(Collectors.toList());
-		if(!paramsMap.isEmpty()){
-			bankDetails = filterBanksResponse(bankDetails, paramsMap);
-		}
-		return BanksUtil.paginatedResponse(bankDetails, paramsMap);
+		return handlePage(BankQuery.parse(queryMap)).getBanks();
 	}
 
 	/**
-	 * Do filtering in the list on the query fields
-	 * @param bankDetails
-	 * @param queryParamMap
-	 * @return
+	 * Same as handle along with the cursor of the next page.
+	 * @param queryMap Map holds the details of request query params.
+	 * @return Page of banks.
 	 */
-	private static List<BankDetails> filterBanksResponse(List<BankDetails> bankDetails,
-			Map<String, String> queryParamMap) {
-		List<Predicate<BankDetails>> allPredicates = getCommonPredicates(
-				queryParamMap);
-		if (queryParamMap.containsKey("product")) {
-			allPredicates.add(bank -> bank.getProducts().contains(queryParamMap.get("product")));
+	public static BanksPage handlePage(Map<String, String[]> queryMap) {
+		return handlePage(BankQuery.parse(queryMap));
+	}
+
+	/**
+	 * @param query Query of the request.
+	 * @return Page of banks.
+	 */
+	public static BanksPage handlePage(BankQuery query) {
+		return page(catalog, query);
+	}
+
+	/**
+	 * Same as handlePage but already rendered as the JSON response body.
+	 * @param queryMap Map holds the details of request query params.
+	 * @return UTF-8 JSON of the banks and the cursor of the next page.
+	 */
+	public static RenderedPage render(Map<String, String[]> queryMap) {
+		return render(BankQuery.parse(queryMap));
+	}
+
+	/**
+	 * Repeated queries are served from the response cache as long as the catalog is not replaced.
+	 * @param query Query of the request.
+	 * @return UTF-8 JSON of the banks and the cursor of the next page.
+	 */
+	public static RenderedPage render(BankQuery query) {
+		Catalog current = catalog;
+		if (responseCache == null) {
+			return RenderedPage.render(page(current, query));
 		}
-		return bankDetails.stream().filter(allPredicates.stream().reduce(x -> true, Predicate::and))
-				.collect(Collectors.toList());
+		return responseCache.get(query.canonical(STATIC_FILTERS), current.version,
+				() -> RenderedPage.render(page(current, query)));
+	}
+
+	private static BanksPage page(Catalog current, BankQuery query) {
+		return BanksUtil.paginatedResponse(current.index, current.version, query, STATIC_FILTERS);
 	}
 
 	private static BankDetails staticBanksMapper(BankModel bankModel) {
@@ -87,4 +263,32 @@ public class BanksCacheBased {
 		return bankDetails;
 	}
 
+	/**
+	 * Indexed banks along with their version, published together so a request reads both at once.
+	 */
+	private static class Catalog {
+
+		private final long version;
+		private final BankIndex index;
+
+		private Catalog(long version, BankIndex index) {
+			this.version = version;
+			this.index = index;
+		}
+	}
+
+	/**
+	 * Catalog read from the banks file which is not published yet.
+	 */
+	static class PreparedCatalog {
+
+		private final BankIndex index;
+		private final StaticBanksLoader.LoadStats stats;
+
+		private PreparedCatalog(BankIndex index, StaticBanksLoader.LoadStats stats) {
+			this.index = index;
+			this.stats = stats;
+		}
+	}
+
 }
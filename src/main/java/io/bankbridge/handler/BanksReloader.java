@@ -0,0 +1,183 @@
+package io.bankbridge.handler;
+
+import io.bankbridge.config.RemoteBanksConfig;
+import io.bankbridge.errorhandler.BanksCustomException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reloads banks-v1.json and banks-v2.json without restart, on request or when the files in reload.directory change.
+ * Reloads run one at a time on their own thread. Both files are parsed and the new banks are built there before any
+ * of them is published, so a file which is not valid keeps the previous banks of both, and requests are served
+ * from the previous banks meanwhile.
+ */
+public class BanksReloader {
+
+  private static final Logger log = LoggerFactory.getLogger(BanksReloader.class);
+
+  /**
+   * Request header holding the admin token
+   */
+  public static final String ADMIN_TOKEN_HEADER = "X-Admin-Token";
+
+  private final BanksRemoteCalls banksRemoteCalls;
+  private final RemoteBanksConfig.Reload config;
+  private final ScheduledExecutorService executor;
+  private ScheduledFuture<?> pendingReload;
+  private WatchService watchService;
+
+  public BanksReloader(BanksRemoteCalls banksRemoteCalls, RemoteBanksConfig.Reload config) {
+    this.banksRemoteCalls = banksRemoteCalls;
+    this.config = config;
+    this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "banks-reloader");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Starts watching the bank files when it is enabled. Only the files in reload.directory are watched, the copies
+   * on the classpath are build output which is not edited in place.
+   * @throws IOException
+   */
+  public void start() throws IOException {
+    if (!config.isWatchFiles()) {
+      return;
+    }
+    Path directory = BankFiles.getDirectory();
+    if (directory == null) {
+      log.warn("Bank files are read from the classpath, set reload.directory to watch them");
+      return;
+    }
+    watchService = FileSystems.getDefault().newWatchService();
+    directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    Thread watcher = new Thread(() -> watch(Set.of(BanksCacheBased.BANKS_FILE, BanksRemoteCalls.BANKS_FILE)),
+        "banks-file-watcher");
+    watcher.setDaemon(true);
+    watcher.start();
+  }
+
+  /**
+   * @return true when POST /admin/reload is served, that is when the admin token is set
+   */
+  public boolean isAdminEnabled() {
+    return config.getAdminToken() != null && !config.getAdminToken().isEmpty();
+  }
+
+  /**
+   * @param token admin token of the request
+   * @throws BanksCustomException with unauthorized status when the token doesn't match the admin token
+   */
+  public void authorize(String token) {
+    if (!isAdminEnabled() || token == null || !MessageDigest.isEqual(
+        token.getBytes(StandardCharsets.UTF_8), config.getAdminToken().getBytes(StandardCharsets.UTF_8))) {
+      throw new BanksCustomException(401, "Admin token is not valid");
+    }
+  }
+
+  public void stop() throws IOException {
+    executor.shutdownNow();
+    if (watchService != null) {
+      watchService.close();
+    }
+  }
+
+  /**
+   * Reloads both files and waits for it.
+   * @return versions of the published banks
+   */
+  public Versions reload() {
+    try {
+      return executor.submit(this::doReload).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new BanksCustomException(500, "Reload of the banks is interrupted");
+    } catch (ExecutionException e) {
+      log.error("Error in reloading the banks {}", e.getCause().getMessage());
+      throw new BanksCustomException(500, "Reload of the banks failed");
+    }
+  }
+
+  private Versions doReload() throws IOException {
+    BanksCacheBased.PreparedCatalog staticBanks = BanksCacheBased.prepare();
+    Map<String, String> remoteBanks = BanksRemoteCalls.readBanks();
+    Versions versions = new Versions(BanksCacheBased.publish(staticBanks), banksRemoteCalls.publish(remoteBanks));
+    log.info("Banks reloaded, static banks version {} remote banks version {}", versions.getStaticBanksVersion(),
+        versions.getRemoteBanksVersion());
+    return versions;
+  }
+
+  private void watch(Set<String> fileNames) {
+    try {
+      while (true) {
+        WatchKey key = watchService.take();
+        for (WatchEvent<?> event : key.pollEvents()) {
+          if (event.context() instanceof Path && fileNames.contains(((Path) event.context()).toString())) {
+            scheduleReload();
+          }
+        }
+        key.reset();
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      log.debug("Stopped watching the bank files");
+    }
+  }
+
+  /**
+   * Editors write a file in several steps, so the reload waits until the changes settle.
+   */
+  private synchronized void scheduleReload() {
+    if (pendingReload != null) {
+      pendingReload.cancel(false);
+    }
+    pendingReload = executor.schedule(() -> {
+      try {
+        doReload();
+      } catch (IOException | RuntimeException e) {
+        //Invalid file keeps the current banks, next change of the file is reloaded again
+        log.error("Error in reloading the changed bank files {}", e.getMessage());
+      }
+    }, config.getDebounceMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Versions of the banks published by a reload.
+   */
+  public static class Versions {
+
+    private final long staticBanksVersion;
+    private final long remoteBanksVersion;
+
+    public Versions(long staticBanksVersion, long remoteBanksVersion) {
+      this.staticBanksVersion = staticBanksVersion;
+      this.remoteBanksVersion = remoteBanksVersion;
+    }
+
+    public long getStaticBanksVersion() {
+      return staticBanksVersion;
+    }
+
+    public long getRemoteBanksVersion() {
+      return remoteBanksVersion;
+    }
+  }
+}
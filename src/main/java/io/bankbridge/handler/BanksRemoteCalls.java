@@ -1,36 +1,87 @@
 package io.bankbridge.handler;
 
-import static io.bankbridge.handler.BanksUtil.getCommonPredicates;
-
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.bankbridge.config.RemoteBanksConfig;
+import io.bankbridge.index.BankIndex;
+import io.bankbridge.metrics.PrometheusWriter;
+import io.bankbridge.model.RemoteBanksResult;
+import io.bankbridge.provider.CachingRemoteBanksProvider;
+import io.bankbridge.provider.CircuitBreaker;
+import io.bankbridge.provider.ConcurrencyLimiter;
 import io.bankbridge.provider.RemoteBanksProvider;
 import io.bankbridge.provider.RemoteBanksProviderImpl;
+import io.bankbridge.provider.RemoteBanksRefresher;
+import io.bankbridge.provider.RemoteBanksSnapshot;
 import io.bankbridge.model.BankModel;
 import io.bankbridge.response.BankDetails;
+import io.bankbridge.response.BanksPage;
+import io.bankbridge.response.RenderedPage;
+import io.bankbridge.response.ResponseCache;
 
 
 public class BanksRemoteCalls {
 
-  private static Map config;
+  //Filters supported by the remote banks
+  private static final Set<String> REMOTE_FILTERS = Set.of(BankIndex.COUNTRY_CODE, BankIndex.ID, BankIndex.NAME,
+      BankIndex.AUTH);
+
+  public static final String BANKS_FILE = "banks-v2.json";
+
+  //Configured bank name -> remote uri, replaced as a whole on reload so a request reads it once and keeps its view
+  private static volatile Map<String, String> config;
+  private static volatile long configVersion;
   private RemoteBanksProvider remoteBanksProvider;
+  //Only available in background mode, then requests are served from its snapshot
+  private RemoteBanksRefresher remoteBanksRefresher;
+  //Rendered pages by canonical query, only in background mode because the snapshot version tells when they are stale
+  private ResponseCache<RenderedPage> responseCache;
 
   /**
    * Default constructor which initiates BanksRemoteCalls with default RemoteBanksProvider
    * RemoteBanksProvider -> returns the banks details by using parallel call mechanism(RemoteBanksProviderImpl)
+   * If cache is enabled in banks-v2-config.json the provider is wrapped with CachingRemoteBanksProvider
+   * so most of the requests are served from memory.
+   * In background mode the banks are polled by RemoteBanksRefresher and requests never call the banks.
    * @throws Exception
    */
   public BanksRemoteCalls() throws Exception {
-    this.remoteBanksProvider = new RemoteBanksProviderImpl();
+    this(RemoteBanksConfig.load());
+  }
+
+  /**
+   * Constructor with the remote banks settings already loaded, for example when they are overridden at startup.
+   * @param remoteBanksConfig
+   * @throws Exception
+   */
+  public BanksRemoteCalls(RemoteBanksConfig remoteBanksConfig) throws Exception {
     init();
+    RemoteBanksProvider provider = new RemoteBanksProviderImpl(remoteBanksConfig);
+    if (remoteBanksConfig.isBackgroundMode()) {
+      remoteBanksRefresher = new RemoteBanksRefresher(provider, config, BanksRemoteCalls::remoteBanksMapper,
+          remoteBanksConfig.getRefresher());
+      remoteBanksRefresher.start();
+      if (remoteBanksConfig.getResponseCache().isEnabled()) {
+        responseCache = new ResponseCache<>(remoteBanksConfig.getResponseCache().getMaxEntries());
+      }
+    } else if (remoteBanksConfig.getCache().isEnabled()) {
+      provider = new CachingRemoteBanksProvider(provider, remoteBanksConfig.getCache());
+    }
+    this.remoteBanksProvider = provider;
   }
 
   /**
@@ -47,48 +98,173 @@ public class BanksRemoteCalls {
   }
 
   public static void init() throws Exception {
-    config = new ObjectMapper()
-        .readValue(Thread.currentThread().getContextClassLoader().getResource("banks-v2.json"),
-            Map.class);
+    config = readBanks();
+  }
+
+  /**
+   * Reads banks-v2.json again and publishes the new remote banks. In background mode the banks which are new
+   * are loaded before the next snapshot is published. If the file can't be read the current banks are kept.
+   * @return version of the remote banks
+   * @throws IOException
+   */
+  public long reload() throws IOException {
+    return publish(readBanks());
+  }
+
+  /**
+   * Publishes the remote banks already read by readBanks.
+   * @param banks configured bank name -> remote uri
+   * @return version of the remote banks
+   */
+  synchronized long publish(Map<String, String> banks) {
+    config = banks;
+    configVersion++;
+    if (remoteBanksRefresher != null) {
+      remoteBanksRefresher.setBanks(banks);
+    }
+    return configVersion;
+  }
+
+  public static long getConfigVersion() {
+    return configVersion;
+  }
+
+  /**
+   * Reads banks-v2.json without publishing it.
+   * @return configured bank name -> remote uri
+   * @throws IOException when the file can't be read or is not valid
+   */
+  static Map<String, String> readBanks() throws IOException {
+    return Collections.unmodifiableMap(new ObjectMapper()
+        .readValue(BankFiles.url(BANKS_FILE),
+            new TypeReference<LinkedHashMap<String, String>>() {}));
   }
 
   /**
    * Banks handle method which returns bank details by calling remote servers.
+   * Banks which are not answered within the deadline are not part of the list, their names are returned
+   * in the page as unavailable banks.
    * @param queryMap Query params in the request.
-   * @return List of remote bank details
+   * @return Page of remote bank details
    */
-  public List<BankDetails> handle(Map<String, String[]> queryMap) {
-    Map<String, String> paramsMap = BanksUtil.getParamsMap(queryMap);
-    List<BankModel> remoteBanksDetails = (List<BankModel>) remoteBanksProvider
-        .getRemoteBanksDetails(new ArrayList<String>(config.values()));
+  public BanksPage handle(Map<String, String[]> queryMap) {
+    return toPage(getSnapshot(), BankQuery.parse(queryMap));
+  }
 
-    List<BankDetails> bankDetails = remoteBanksDetails.stream().map(BanksRemoteCalls::remoteBanksMapper)
-        .collect(Collectors.toList());
-    //Sorting the response from banks because call happening in parallel so can't ensure the order
-    bankDetails.sort(Comparator.comparing(BankDetails::getId));
-    if (!paramsMap.isEmpty()) {
-      bankDetails = filterBanksResponse(bankDetails, paramsMap);
+  /**
+   * Asynchronous variant of handle, the calling thread is not blocked while the remote banks are called.
+   * The page is built by the thread which completes the remote calls.
+   * @param queryMap Query params in the request.
+   * @return Page of remote bank details
+   */
+  public CompletableFuture<BanksPage> handleAsync(Map<String, String[]> queryMap) {
+    return handleAsync(BankQuery.parse(queryMap));
+  }
+
+  /**
+   * @param query Query of the request.
+   * @return Page of remote bank details
+   */
+  public CompletableFuture<BanksPage> handleAsync(BankQuery query) {
+    if (remoteBanksRefresher != null) {
+      return CompletableFuture.completedFuture(toPage(remoteBanksRefresher.getSnapshot(), query));
+    }
+    Map<String, String> banks = config;
+    return remoteBanksProvider.getRemoteBanksDetailsAsync(new ArrayList<>(banks.values()))
+        .thenApply(remoteBanksResult -> toPage(toSnapshot(banks, remoteBanksResult), query));
+  }
+
+  /**
+   * Same as handleAsync but with the page already rendered as the JSON response body.
+   * In background mode repeated queries are served from the response cache until the next snapshot is published.
+   * @param query Query of the request.
+   * @return Rendered page of remote bank details
+   */
+  public CompletableFuture<RenderedPage> renderAsync(BankQuery query) {
+    if (remoteBanksRefresher == null || responseCache == null) {
+      return handleAsync(query).thenApply(RenderedPage::render);
+    }
+    RemoteBanksSnapshot snapshot = remoteBanksRefresher.getSnapshot();
+    return CompletableFuture.completedFuture(
+        responseCache.get(query.canonical(REMOTE_FILTERS), snapshot.getVersion(),
+            () -> RenderedPage.render(toPage(snapshot, query))));
+  }
+
+  private static BanksPage toPage(RemoteBanksSnapshot snapshot, BankQuery query) {
+    BanksPage page = BanksUtil.paginatedResponse(snapshot.getIndex(), snapshot.getVersion(), query, REMOTE_FILTERS);
+    return new BanksPage(page.getBanks(), snapshot.getUnavailableBanks(), page.getNextCursor());
+  }
+
+  /**
+   * Streaming variant of handle, every bank matching the filters is given to the sink as soon as its bank answers,
+   * so the first bank doesn't wait for the slowest one. Pagination is not applied because banks are in the order
+   * they arrive. In background mode the banks of the latest snapshot are given to the sink.
+   * @param query Query of the request.
+   * @param sink receives the banks, always on the calling thread
+   * @return names of the banks which are not available
+   */
+  public List<String> stream(BankQuery query, Consumer<BankDetails> sink) {
+    if (remoteBanksRefresher != null) {
+      RemoteBanksSnapshot snapshot = remoteBanksRefresher.getSnapshot();
+      snapshot.getIndex().compile(query.getFilters(), REMOTE_FILTERS).stream().forEach(sink);
+      return snapshot.getUnavailableBanks();
     }
-    return BanksUtil.paginatedResponse(bankDetails, paramsMap);
+    //Banks are streamed one by one as they arrive, so every bank is tested on its own
+    Predicate<BankDetails> bankFilter = query.predicate(REMOTE_FILTERS);
+    Map<String, String> banks = config;
+    RemoteBanksResult remoteBanksResult = remoteBanksProvider
+        .getRemoteBanksDetails(new ArrayList<>(banks.values()), (uri, bankModel) -> {
+          BankDetails bankDetails = remoteBanksMapper(bankModel);
+          if (bankFilter.test(bankDetails)) {
+            //Same uri can be configured for more than one bank, every one of them is part of the response
+            banks.values().stream().filter(uri::equals).forEach(configured -> sink.accept(bankDetails));
+          }
+        });
+    return banks.entrySet().stream()
+        .filter(bank -> remoteBanksResult.getBank(bank.getValue()) == null)
+        .map(Map.Entry::getKey)
+        .collect(Collectors.toList());
   }
 
   /**
-   * Filter bank details. This method will create the list of predicates based on the query params
-   * and return the list of banks based on the filter
-   * @param bankDetails
-   * @param queryParamMap
+   * In background mode returns the latest snapshot published by the refresher,
+   * otherwise calls the remote banks and builds the snapshot for this request.
    * @return
    */
-  private static List<BankDetails> filterBanksResponse(List<BankDetails> bankDetails,
-      Map<String, String> queryParamMap) {
-    List<Predicate<BankDetails>> allPredicates = getCommonPredicates(
-        queryParamMap);
-    if (queryParamMap.containsKey("auth")) {
-      allPredicates.add(bank -> queryParamMap.get("auth").equals(bank.getAuth()));
+  private RemoteBanksSnapshot getSnapshot() {
+    if (remoteBanksRefresher != null) {
+      return remoteBanksRefresher.getSnapshot();
     }
-    return bankDetails.stream().filter(allPredicates.stream().reduce(x -> true, Predicate::and))
-        .collect(
-            Collectors.toList());
+    Map<String, String> banks = config;
+    return toSnapshot(banks, remoteBanksProvider.getRemoteBanksDetails(new ArrayList<>(banks.values())));
+  }
+
+  private static RemoteBanksSnapshot toSnapshot(Map<String, String> banks, RemoteBanksResult remoteBanksResult) {
+    return RemoteBanksSnapshot.build(0, banks, remoteBanksResult.getBanks(), BanksRemoteCalls::remoteBanksMapper);
+  }
+
+  /**
+   * State of the circuit breakers for every remote bank uri.
+   * @return
+   */
+  public Map<String, CircuitBreaker.Status> getCircuitBreakers() {
+    return remoteBanksProvider.getCircuitBreakers();
+  }
+
+  /**
+   * Concurrency limits of the outbound calls for every remote bank uri and the global limit.
+   * @return
+   */
+  public Map<String, ConcurrencyLimiter.Status> getLimiters() {
+    return remoteBanksProvider.getLimiters();
+  }
+
+  /**
+   * Metrics of the remote calls.
+   * @param writer
+   */
+  public void writeMetrics(PrometheusWriter writer) {
+    remoteBanksProvider.writeMetrics(writer);
   }
 
   private static BankDetails remoteBanksMapper(BankModel bankModel) {
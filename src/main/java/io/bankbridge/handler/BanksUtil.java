@@ -1,73 +1,47 @@
 package io.bankbridge.handler;
 
+import io.bankbridge.index.BankIndex;
 import io.bankbridge.response.BankDetails;
-import spark.QueryParamsMap;
-import spark.utils.StringUtils;
+import io.bankbridge.response.BanksPage;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 public class BanksUtil {
 
-  private static final int PAGE_SIZE = 5;
-
   /**
-   * Method to create common predicates for countryCode, id, and name.
-   * This can be used commonly in both static and remote banks.
-   * @param queryParamMap
-   * @return
+   * Filters the indexed banks on the given filter fields of the query and returns the requested page.
+   * Page is either the pageNo or the page after the cursor. Banks are filtered lazily and only until the page
+   * is full. A cursor is found by binary search, so a deep page costs the same as the first one, and the page
+   * contains the cursor of the next page when there is one.
+   * @param bankIndex banks sorted by id
+   * @param version version of the banks, cursors of other versions continue after their last id
+   * @param query
+   * @param filters filter fields supported by the endpoint
+   * @return page without unavailable banks
    */
-  public static List<Predicate<BankDetails>> getCommonPredicates(Map<String, String> queryParamMap) {
-    List<Predicate<BankDetails>> allPredicates = new ArrayList<>();
-    if (queryParamMap.containsKey("countrycode")) {
-      allPredicates.add(bank -> queryParamMap.get("countrycode").equals(bank.getCountryCode()));
-    }
-    if (queryParamMap.containsKey("id")) {
-      allPredicates.add(bank -> queryParamMap.get("id").equals(bank.getId()));
+  public static BanksPage paginatedResponse(BankIndex bankIndex, long version, BankQuery query, Set<String> filters) {
+    BankIndex.Plan plan = bankIndex.compile(query.getFilters(), filters);
+    BankIndex.Page page = query.getCursor() != null
+        ? plan.page(lastPosition(bankIndex, version, query.getCursor()), 0, query.getSize())
+        : plan.page(-1, (long) query.getPageNo() * query.getSize(), query.getSize());
+    List<BankDetails> banks = page.getBanks();
+    String nextCursor = null;
+    if (page.hasMore() && !banks.isEmpty()) {
+      nextCursor = new PageCursor(version, page.getLastPosition(), banks.get(banks.size() - 1).getId()).encode();
     }
-    if (queryParamMap.containsKey("name")) {
-      allPredicates.add(bank -> queryParamMap.get("name").equals(bank.getName()));
-    }
-    return allPredicates;
-  }
-
-  /**
-   * Converting the Map<String, String[] -> Map<String, String>
-   * if the values in an array then in all filter mechanism there need to stream the array.
-   * To avoid this
-   * @param queryMap
-   * @return
-   */
-  public static Map<String, String> getParamsMap(Map<String, String[]> queryMap) {
-    Map<String, String> paramsMap = new HashMap<>();
-    queryMap.entrySet().stream().forEach(entry -> {
-      paramsMap.put(entry.getKey(), Arrays.stream(entry.getValue()).findFirst().get());});
-    return paramsMap;
+    return new BanksPage(banks, List.of(), nextCursor);
   }
 
   /**
-   * Common method used for paginating the response based on size and pagenumber
-   * if size is given it will return the list with defined size same for pageNo also.
-   * By using stream skip and limit features.
-   * @param bankDetails
-   * @param queryParamMap
-   * @return
+   * Position of the last bank of the cursor in the banks, when the banks are replaced since the cursor was created
+   * it is the position of the last bank with an id up to the id of the cursor.
    */
-  public static List<BankDetails> paginatedResponse(List<BankDetails> bankDetails,
-      Map<String, String> queryParamMap) {
-    int pageSize =
-        queryParamMap.containsKey("size") ? Integer.valueOf(queryParamMap.get("size")) : PAGE_SIZE;
-    int pageNo =
-        queryParamMap.containsKey("pageNo") ? Integer.valueOf(queryParamMap.get("pageNo")) : 0;
-    return bankDetails.stream()
-        .skip(pageNo * pageSize)
-        .limit(pageSize)
-        .collect(Collectors.toList());
+  private static int lastPosition(BankIndex bankIndex, long version, PageCursor cursor) {
+    if (cursor.getVersion() == version && cursor.getLastId().equals(bankIndex.idAt(cursor.getPosition()))) {
+      return cursor.getPosition();
+    }
+    return bankIndex.countUpToId(cursor.getLastId()) - 1;
   }
 
 }
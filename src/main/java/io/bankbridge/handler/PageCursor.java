@@ -0,0 +1,76 @@
+package io.bankbridge.handler;
+
+import io.bankbridge.errorhandler.BanksCustomException;
+import org.eclipse.jetty.http.HttpStatus;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of the last bank of a page, handed to the client as an opaque token to ask for the next page.
+ * Holds the version of the banks the page was taken from, the position of the last bank in them and its id.
+ * While the banks are the same version the next page starts right after the position. Once they are replaced the
+ * next page starts after the id, banks are sorted by id so no bank is returned twice or skipped because of the
+ * banks added or removed in between.
+ */
+public class PageCursor {
+
+  private static final int HEADER_BYTES = Long.BYTES + Integer.BYTES;
+
+  private final long version;
+  private final int position;
+  private final String lastId;
+
+  public PageCursor(long version, int position, String lastId) {
+    this.version = version;
+    this.position = position;
+    this.lastId = lastId;
+  }
+
+  /**
+   * @return URL safe token
+   */
+  public String encode() {
+    byte[] id = lastId.getBytes(StandardCharsets.UTF_8);
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + id.length)
+        .putLong(version)
+        .putInt(position)
+        .put(id);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+  }
+
+  /**
+   * @param token token created by encode
+   * @return
+   * @throws BanksCustomException with bad request status when the token is not a cursor
+   */
+  public static PageCursor decode(String token) {
+    try {
+      ByteBuffer buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(token));
+      if (buffer.remaining() < HEADER_BYTES) {
+        throw new IllegalArgumentException("Cursor is too short");
+      }
+      long version = buffer.getLong();
+      int position = buffer.getInt();
+      if (position < 0) {
+        throw new IllegalArgumentException("Negative position");
+      }
+      return new PageCursor(version, position, StandardCharsets.UTF_8.decode(buffer).toString());
+    } catch (IllegalArgumentException e) {
+      throw new BanksCustomException(HttpStatus.BAD_REQUEST_400, "Cursor is not valid!");
+    }
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public int getPosition() {
+    return position;
+  }
+
+  public String getLastId() {
+    return lastId;
+  }
+}
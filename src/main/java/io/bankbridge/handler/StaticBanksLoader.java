@@ -0,0 +1,231 @@
+package io.bankbridge.handler;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.bankbridge.model.BankModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * Reads the static banks file one bank at a time with the Jackson streaming parser, so a very large catalog is never
+ * held as a tree or as a list of objects. Every bank is given to the consumer as soon as it is parsed and can be
+ * dropped afterwards. The file is read through a buffered stream and not memory mapped, so a file which is rewritten
+ * while it is read (for example by a reload) fails the load with an IOException.
+ */
+public class StaticBanksLoader {
+
+  private static final Logger log = LoggerFactory.getLogger(StaticBanksLoader.class);
+
+  private static final String BANKS_FIELD = "banks";
+  private static final int BUFFER_SIZE = 64 * 1024;
+  //Source is closed by the loader, it is still read for the checksum after the banks are parsed
+  private static final JsonFactory JSON_FACTORY = new JsonFactory().disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+  private StaticBanksLoader() {
+  }
+
+  /**
+   * @param resource banks file, an object with the banks array in the banks field
+   * @param consumer receives every bank in the order of the file
+   * @return number of banks, bytes and time of the load
+   * @throws IOException when the file can't be read or is not valid
+   */
+  public static LoadStats load(URL resource, Consumer<BankModel> consumer) throws IOException {
+    long start = System.nanoTime();
+    long banks;
+    CRC32 checksum = new CRC32();
+    try (CountingInputStream input = new CountingInputStream(new CheckedInputStream(open(resource), checksum))) {
+      banks = parse(input, consumer);
+      //Rest of the file after the banks is part of the checksum as well
+      drain(input);
+      LoadStats stats = new LoadStats(banks, input.count, System.nanoTime() - start, checksum.getValue());
+      log.info("Loaded {} banks ({} KB) from {} in {} ms, {} banks/s", stats.getBanks(), stats.getBytes() / 1024,
+          resource, stats.getMillis(), Math.round(stats.getBanksPerSecond()));
+      return stats;
+    }
+  }
+
+  /**
+   * CRC32 of the file, same as the checksum of a load of it, without parsing the banks.
+   * @param resource banks file
+   * @return
+   * @throws IOException
+   */
+  public static long checksum(URL resource) throws IOException {
+    CRC32 checksum = new CRC32();
+    try (InputStream input = new CheckedInputStream(open(resource), checksum)) {
+      drain(input);
+    }
+    return checksum.getValue();
+  }
+
+  private static void drain(InputStream input) throws IOException {
+    byte[] buffer = new byte[BUFFER_SIZE];
+    while (input.read(buffer) >= 0) {
+      //Read only for the checksum
+    }
+  }
+
+  private static InputStream open(URL resource) throws IOException {
+    if (resource == null) {
+      throw new IOException("Banks file is not found");
+    }
+    return new BufferedInputStream(resource.openStream(), BUFFER_SIZE);
+  }
+
+  private static long parse(InputStream input, Consumer<BankModel> consumer) throws IOException {
+    long banks = 0;
+    try (JsonParser parser = JSON_FACTORY.createParser(input)) {
+      expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        if (!BANKS_FIELD.equals(parser.getCurrentName())) {
+          parser.nextToken();
+          parser.skipChildren();
+          continue;
+        }
+        if (parser.nextToken() == JsonToken.VALUE_NULL) {
+          continue;
+        }
+        expect(parser, parser.currentToken(), JsonToken.START_ARRAY);
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+          consumer.accept(parseBank(parser));
+          banks++;
+        }
+      }
+    }
+    return banks;
+  }
+
+  private static BankModel parseBank(JsonParser parser) throws IOException {
+    expect(parser, parser.currentToken(), JsonToken.START_OBJECT);
+    BankModel bank = new BankModel();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken value = parser.nextToken();
+      switch (field) {
+        case "bic":
+          bank.setBic(parser.getValueAsString());
+          break;
+        case "name":
+          bank.setName(parser.getValueAsString());
+          break;
+        case "countryCode":
+          bank.setCountryCode(parser.getValueAsString());
+          break;
+        case "auth":
+          bank.setAuth(parser.getValueAsString());
+          break;
+        case "products":
+          if (value != JsonToken.VALUE_NULL) {
+            expect(parser, value, JsonToken.START_ARRAY);
+            ArrayList<String> products = new ArrayList<>();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+              products.add(parser.getValueAsString());
+            }
+            bank.setProducts(products);
+          }
+          break;
+        default:
+          //Fields which are not part of the model are ignored
+          parser.skipChildren();
+      }
+    }
+    return bank;
+  }
+
+  private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws JsonParseException {
+    if (actual != expected) {
+      throw new JsonParseException(parser, "Expected " + expected + " but was " + actual);
+    }
+  }
+
+  /**
+   * Outcome of a load.
+   */
+  public static class LoadStats {
+
+    private final long banks;
+    private final long bytes;
+    private final long nanos;
+    private final long checksum;
+
+    public LoadStats(long banks, long bytes, long nanos, long checksum) {
+      this.banks = banks;
+      this.bytes = bytes;
+      this.nanos = nanos;
+      this.checksum = checksum;
+    }
+
+    public long getBanks() {
+      return banks;
+    }
+
+    public long getBytes() {
+      return bytes;
+    }
+
+    public long getNanos() {
+      return nanos;
+    }
+
+    /**
+     * @return CRC32 of the file
+     */
+    public long getChecksum() {
+      return checksum;
+    }
+
+    public long getMillis() {
+      return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    public double getBanksPerSecond() {
+      return nanos == 0 ? 0 : banks * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+  }
+
+  private static class CountingInputStream extends InputStream {
+
+    private final InputStream input;
+    private long count;
+
+    private CountingInputStream(InputStream input) {
+      this.input = input;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int value = input.read();
+      if (value >= 0) {
+        count++;
+      }
+      return value;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      int read = input.read(bytes, offset, length);
+      if (read > 0) {
+        count += read;
+      }
+      return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+      input.close();
+    }
+  }
+}
@@ -0,0 +1,1021 @@
+package io.bankbridge.index;
+
+import io.bankbridge.response.BankDetails;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Immutable, compact catalog of banks indexed for the exact match filters.
+ * Banks are not kept as objects. Country code, auth and products are dictionary encoded (products as a list of codes
+ * per bank, in the order and with the repeats of the source), id and name are kept as UTF-8 in one shared byte array.
+ * BankDetails are materialized only for the banks which are returned.
+ * Country code, auth and product keep a posting (sorted positions) per value. Id and name are looked up by binary
+ * search in the positions sorted by them. A query is compiled into a Plan which walks the smallest candidate range
+ * and tests the other filters on it, instead of testing every bank. Matching banks keep the order of the list the
+ * catalog is built from. Filter values are matched ignoring the case of ASCII letters.
+ */
+public class BankIndex {
+
+  public static final String COUNTRY_CODE = "countrycode";
+  public static final String ID = "id";
+  public static final String NAME = "name";
+  public static final String AUTH = "auth";
+  public static final String PRODUCT = "product";
+
+  //Every bank has two strings in the shared text, id and then name
+  private static final int ID_SLOT = 0;
+  private static final int NAME_SLOT = 1;
+  private static final short NO_CODE = -1;
+  //Pages are usually small, larger ones grow the list as they are filled
+  private static final int PAGE_CAPACITY = 64;
+
+  private final int size;
+  private final byte[] text;
+  //Start of every string in text, string of a bank slot is text[offsets[2 * position + slot], offsets[... + 1])
+  private final int[] textOffsets;
+  private final BitSet nullText;
+  private final Dictionary countryCodes;
+  private final Dictionary auths;
+  private final Dictionary products;
+  private final short[] countryCodeOfBank;
+  private final short[] authOfBank;
+  //Product codes of every bank, codes of a bank are productCodes[productOffsets[position], productOffsets[position + 1])
+  private final short[] productCodes;
+  private final int[] productOffsets;
+  private final BitSet nullProducts;
+  private final int[] positionsById;
+  private final int[] positionsByName;
+  private final int[][] countryCodePostings;
+  private final int[][] authPostings;
+  private final int[][] productPostings;
+
+  private BankIndex(Builder builder, int[] order) {
+    size = order.length;
+    countryCodes = builder.countryCodes;
+    auths = builder.auths;
+    products = builder.products;
+    countryCodeOfBank = new short[size];
+    authOfBank = new short[size];
+    nullText = new BitSet(size * 2);
+    nullProducts = new BitSet(size);
+    textOffsets = new int[size * 2 + 1];
+    productOffsets = new int[size + 1];
+    productCodes = new short[builder.productOffsets[builder.size]];
+    int textLength = 0;
+    for (int position = 0; position < size; position++) {
+      for (int slot = ID_SLOT; slot <= NAME_SLOT; slot++) {
+        int from = order[position] * 2 + slot;
+        textOffsets[position * 2 + slot] = textLength;
+        textLength += builder.textOffsets[from + 1] - builder.textOffsets[from];
+      }
+    }
+    textOffsets[size * 2] = textLength;
+    text = new byte[textLength];
+    for (int position = 0; position < size; position++) {
+      int added = order[position];
+      for (int slot = ID_SLOT; slot <= NAME_SLOT; slot++) {
+        int from = added * 2 + slot;
+        int to = position * 2 + slot;
+        nullText.set(to, builder.nullText.get(from));
+        System.arraycopy(builder.text, builder.textOffsets[from], text, textOffsets[to],
+            builder.textOffsets[from + 1] - builder.textOffsets[from]);
+      }
+      countryCodeOfBank[position] = builder.countryCodeOfBank[added];
+      authOfBank[position] = builder.authOfBank[added];
+      nullProducts.set(position, builder.nullProducts.get(added));
+      int productCount = productOffsets[position];
+      for (int i = builder.productOffsets[added]; i < builder.productOffsets[added + 1]; i++) {
+        productCodes[productCount++] = (short) builder.productCodes[i];
+      }
+      productOffsets[position + 1] = productCount;
+    }
+    positionsById = sortedBy(text, textOffsets, nullText, size, ID_SLOT, false);
+    positionsByName = sortedBy(text, textOffsets, nullText, size, NAME_SLOT, false);
+    countryCodePostings = postings(countryCodeOfBank, countryCodes.size());
+    authPostings = postings(authOfBank, auths.size());
+    productPostings = productPostings(productCodes, productOffsets, products.size());
+  }
+
+  /**
+   * Reads the columns and filter indexes in the order writeTo writes them.
+   */
+  private BankIndex(ByteBuffer buffer) {
+    size = buffer.getInt();
+    text = readBytes(buffer);
+    textOffsets = readInts(buffer);
+    nullText = BitSet.valueOf(readLongs(buffer));
+    countryCodes = Dictionary.readFrom(buffer);
+    auths = Dictionary.readFrom(buffer);
+    products = Dictionary.readFrom(buffer);
+    countryCodeOfBank = readShorts(buffer);
+    authOfBank = readShorts(buffer);
+    productCodes = readShorts(buffer);
+    productOffsets = readInts(buffer);
+    nullProducts = BitSet.valueOf(readLongs(buffer));
+    positionsById = readInts(buffer);
+    positionsByName = readInts(buffer);
+    countryCodePostings = readPostings(buffer);
+    authPostings = readPostings(buffer);
+    productPostings = readPostings(buffer);
+    if (textOffsets.length != size * 2 + 1 || countryCodeOfBank.length != size || authOfBank.length != size
+        || productOffsets.length != size + 1 || productOffsets[size] != productCodes.length
+        || positionsById.length != size
+        || positionsByName.length != size || textOffsets[size * 2] != text.length) {
+      throw new IllegalArgumentException("Catalog columns don't match " + size + " banks");
+    }
+  }
+
+  /**
+   * Builds the catalog of the banks in the order of the list, the banks are copied so later changes to them are
+   * not visible.
+   * @param banks
+   * @return
+   */
+  public static BankIndex build(List<BankDetails> banks) {
+    Builder builder = new Builder();
+    banks.forEach(builder::add);
+    return builder.build();
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Writes the catalog in its compact form, filter indexes included, so readFrom doesn't have to sort again.
+   * @param out
+   * @throws IOException
+   */
+  public void writeTo(DataOutputStream out) throws IOException {
+    out.writeInt(size);
+    writeBytes(out, text);
+    writeInts(out, textOffsets);
+    writeLongs(out, nullText.toLongArray());
+    countryCodes.writeTo(out);
+    auths.writeTo(out);
+    products.writeTo(out);
+    writeShorts(out, countryCodeOfBank);
+    writeShorts(out, authOfBank);
+    writeShorts(out, productCodes);
+    writeInts(out, productOffsets);
+    writeLongs(out, nullProducts.toLongArray());
+    writeInts(out, positionsById);
+    writeInts(out, positionsByName);
+    writePostings(out, countryCodePostings);
+    writePostings(out, authPostings);
+    writePostings(out, productPostings);
+  }
+
+  /**
+   * Catalog written by writeTo, the buffer is left after it.
+   * @param buffer
+   * @return
+   * @throws IllegalArgumentException when the content is not a catalog
+   */
+  public static BankIndex readFrom(ByteBuffer buffer) {
+    try {
+      return new BankIndex(buffer);
+    } catch (BufferUnderflowException | NegativeArraySizeException | IndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("Catalog is truncated", e);
+    }
+  }
+
+  /**
+   * Every bank of the catalog, materialized when it is read.
+   * @return
+   */
+  public List<BankDetails> getBanks() {
+    return new AbstractList<BankDetails>() {
+      @Override
+      public BankDetails get(int position) {
+        return materialize(position);
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return heap bytes of the columns and filter indexes, without object headers and the dictionaries
+   */
+  public long estimatedBytes() {
+    long bytes = text.length + (long) textOffsets.length * Integer.BYTES
+        + (nullText.size() + nullProducts.size()) / Byte.SIZE
+        + (long) (countryCodeOfBank.length + authOfBank.length + productCodes.length) * Short.BYTES
+        + (long) (productOffsets.length + positionsById.length + positionsByName.length) * Integer.BYTES;
+    for (int[][] postings : new int[][][]{countryCodePostings, authPostings, productPostings}) {
+      for (int[] posting : postings) {
+        bytes += (long) posting.length * Integer.BYTES;
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * @param position
+   * @return id of the bank at the position, null when there is no such bank
+   */
+  public String idAt(int position) {
+    return position < size ? text(position, ID_SLOT) : null;
+  }
+
+  /**
+   * Number of banks with an id up to the given one, in a catalog ordered by id it is the position of the first bank
+   * after the id, also when there is no bank with the id.
+   * @param id
+   * @return
+   */
+  public int countUpToId(String id) {
+    return bound(positionsById, ID_SLOT, foldedUtf8(id), true);
+  }
+
+  /**
+   * Compiles the filters of a query against this catalog. Values of a filter are alternatives and the filters are
+   * combined, values are matched ignoring the case of ASCII letters. Codes and keys of the values are resolved once,
+   * so the plan can be used for any page of this catalog.
+   * @param filterValues filter -> values
+   * @param filters filter fields supported by the caller
+   * @return
+   */
+  public Plan compile(Map<String, List<String>> filterValues, Set<String> filters) {
+    List<Condition> conditions = new ArrayList<>();
+    for (String filter : filters) {
+      List<String> values = filterValues.get(filter);
+      if (values != null && !values.isEmpty()) {
+        conditions.add(condition(filter, values));
+      }
+    }
+    return new Plan(conditions.toArray(new Condition[0]));
+  }
+
+  /**
+   * Resolves the values of the filter to the accepted codes or UTF-8 keys and the ranges of their candidate positions.
+   */
+  private Condition condition(String filter, List<String> values) {
+    switch (filter) {
+      case COUNTRY_CODE:
+        return codeCondition(Field.COUNTRY_CODE, countryCodes, countryCodePostings, values);
+      case AUTH:
+        return codeCondition(Field.AUTH, auths, authPostings, values);
+      case PRODUCT:
+        return codeCondition(Field.PRODUCT, products, productPostings, values);
+      case ID:
+        return textCondition(Field.ID, positionsById, ID_SLOT, values);
+      case NAME:
+        return textCondition(Field.NAME, positionsByName, NAME_SLOT, values);
+      default:
+        throw new IllegalArgumentException("Filter " + filter + " is not indexed");
+    }
+  }
+
+  private Condition codeCondition(Field field, Dictionary dictionary, int[][] postings, List<String> values) {
+    boolean[] accepted = new boolean[dictionary.size()];
+    List<int[]> candidates = new ArrayList<>();
+    for (String value : values) {
+      for (int code : dictionary.findIgnoreCase(value)) {
+        if (!accepted[code]) {
+          accepted[code] = true;
+          candidates.add(postings[code]);
+        }
+      }
+    }
+    int[] from = new int[candidates.size()];
+    int[] to = candidates.stream().mapToInt(posting -> posting.length).toArray();
+    return new Condition(field, accepted, null, candidates.toArray(new int[0][]), from, to);
+  }
+
+  private Condition textCondition(Field field, int[] sortedPositions, int slot, List<String> values) {
+    byte[][] keys = new byte[values.size()][];
+    int[][] candidates = new int[values.size()][];
+    int[] from = new int[values.size()];
+    int[] to = new int[values.size()];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = foldedUtf8(values.get(i));
+      candidates[i] = sortedPositions;
+      //Sort is stable, so the range of the banks with the same string is in position order
+      from[i] = bound(sortedPositions, slot, keys[i], false);
+      to[i] = bound(sortedPositions, slot, keys[i], true);
+    }
+    return new Condition(field, null, keys, candidates, from, to);
+  }
+
+  private static int lowerBound(int[] positions, int from, int to, int position) {
+    int found = Arrays.binarySearch(positions, from, to, position);
+    return found >= 0 ? found : -found - 1;
+  }
+
+  /**
+   * Binary search in the positions sorted by the string of the slot.
+   * @return index of the first bank with the key (upper false) or after it (upper true)
+   */
+  private int bound(int[] sortedPositions, int slot, byte[] key, boolean upper) {
+    int low = 0;
+    int high = sortedPositions.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      int compared = compareText(sortedPositions[middle], slot, key);
+      if (compared < 0 || upper && compared == 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Compares the string of the bank with the folded key as unsigned UTF-8 bytes ignoring the case of ASCII letters,
+   * missing strings are before any key.
+   */
+  private int compareText(int position, int slot, byte[] key) {
+    int index = position * 2 + slot;
+    if (nullText.get(index)) {
+      return -1;
+    }
+    return compareFolded(text, textOffsets[index], textOffsets[index + 1], key, 0, key.length);
+  }
+
+  /**
+   * Positions sorted by the string of the slot as unsigned UTF-8 bytes ignoring the case of ASCII letters, missing
+   * strings first. Strings equal ignoring case are in position order, or in exact order when exactTies is set.
+   */
+  private static int[] sortedBy(byte[] text, int[] textOffsets, BitSet nullText, int size, int slot,
+      boolean exactTies) {
+    Integer[] positions = new Integer[size];
+    Arrays.setAll(positions, position -> position);
+    Arrays.sort(positions, (first, second) -> {
+      int firstIndex = first * 2 + slot;
+      int secondIndex = second * 2 + slot;
+      if (nullText.get(firstIndex) || nullText.get(secondIndex)) {
+        return Boolean.compare(!nullText.get(firstIndex), !nullText.get(secondIndex));
+      }
+      int compared = compareFolded(text, textOffsets[firstIndex], textOffsets[firstIndex + 1],
+          text, textOffsets[secondIndex], textOffsets[secondIndex + 1]);
+      if (compared != 0 || !exactTies) {
+        return compared;
+      }
+      return Arrays.compareUnsigned(text, textOffsets[firstIndex], textOffsets[firstIndex + 1],
+          text, textOffsets[secondIndex], textOffsets[secondIndex + 1]);
+    });
+    return Arrays.stream(positions).mapToInt(Integer::intValue).toArray();
+  }
+
+  private static int compareFolded(byte[] first, int firstFrom, int firstTo, byte[] second, int secondFrom,
+      int secondTo) {
+    int length = Math.min(firstTo - firstFrom, secondTo - secondFrom);
+    for (int i = 0; i < length; i++) {
+      int compared = Integer.compare(fold(first[firstFrom + i]), fold(second[secondFrom + i]));
+      if (compared != 0) {
+        return compared;
+      }
+    }
+    return Integer.compare(firstTo - firstFrom, secondTo - secondFrom);
+  }
+
+  private static int fold(byte value) {
+    int unsigned = value & 0xFF;
+    return unsigned >= 'A' && unsigned <= 'Z' ? unsigned + ('a' - 'A') : unsigned;
+  }
+
+  private static byte[] foldedUtf8(String value) {
+    return foldCase(value).getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @param value
+   * @return value with the ASCII letters in lower case, the case folding used by the filters
+   */
+  public static String foldCase(String value) {
+    char[] chars = value.toCharArray();
+    for (int i = 0; i < chars.length; i++) {
+      if (chars[i] >= 'A' && chars[i] <= 'Z') {
+        chars[i] += 'a' - 'A';
+      }
+    }
+    return new String(chars);
+  }
+
+  /**
+   * Same as foldCase(value).equals(folded) without creating the folded value.
+   * @param value
+   * @param folded value already folded by foldCase
+   * @return
+   */
+  public static boolean equalsFolded(String value, String folded) {
+    if (value == null || value.length() != folded.length()) {
+      return false;
+    }
+    for (int i = 0; i < folded.length(); i++) {
+      char c = value.charAt(i);
+      if ((c >= 'A' && c <= 'Z' ? (char) (c + 'a' - 'A') : c) != folded.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int[][] postings(short[] codeOfBank, int dictionarySize) {
+    int[] counts = new int[dictionarySize];
+    for (short code : codeOfBank) {
+      if (code != NO_CODE) {
+        counts[code]++;
+      }
+    }
+    int[][] postings = new int[dictionarySize][];
+    for (int code = 0; code < dictionarySize; code++) {
+      postings[code] = new int[counts[code]];
+      counts[code] = 0;
+    }
+    for (int position = 0; position < codeOfBank.length; position++) {
+      short code = codeOfBank[position];
+      if (code != NO_CODE) {
+        postings[code][counts[code]++] = position;
+      }
+    }
+    return postings;
+  }
+
+  /**
+   * Postings of the product codes in one pass to count and one to fill, a bank with a repeated product is in its
+   * posting once.
+   */
+  private static int[][] productPostings(short[] productCodes, int[] productOffsets, int dictionarySize) {
+    int[] counts = new int[dictionarySize];
+    int[] lastPosition = new int[dictionarySize];
+    Arrays.fill(lastPosition, -1);
+    int size = productOffsets.length - 1;
+    for (int position = 0; position < size; position++) {
+      for (int i = productOffsets[position]; i < productOffsets[position + 1]; i++) {
+        short code = productCodes[i];
+        if (lastPosition[code] != position) {
+          lastPosition[code] = position;
+          counts[code]++;
+        }
+      }
+    }
+    int[][] postings = new int[dictionarySize][];
+    for (int code = 0; code < dictionarySize; code++) {
+      postings[code] = new int[counts[code]];
+      counts[code] = 0;
+    }
+    for (int position = 0; position < size; position++) {
+      for (int i = productOffsets[position]; i < productOffsets[position + 1]; i++) {
+        short code = productCodes[i];
+        int[] posting = postings[code];
+        if (counts[code] == 0 || posting[counts[code] - 1] != position) {
+          posting[counts[code]++] = position;
+        }
+      }
+    }
+    return postings;
+  }
+
+  private BankDetails materialize(int position) {
+    BankDetails bankDetails = new BankDetails();
+    bankDetails.setId(text(position, ID_SLOT));
+    bankDetails.setName(text(position, NAME_SLOT));
+    bankDetails.setCountryCode(countryCodes.decode(countryCodeOfBank[position]));
+    bankDetails.setAuth(auths.decode(authOfBank[position]));
+    if (!nullProducts.get(position)) {
+      ArrayList<String> bankProducts = new ArrayList<>(productOffsets[position + 1] - productOffsets[position]);
+      for (int i = productOffsets[position]; i < productOffsets[position + 1]; i++) {
+        bankProducts.add(products.decode(productCodes[i]));
+      }
+      bankDetails.setProducts(bankProducts);
+    }
+    return bankDetails;
+  }
+
+  private String text(int position, int slot) {
+    int index = position * 2 + slot;
+    if (nullText.get(index)) {
+      return null;
+    }
+    return new String(text, textOffsets[index], textOffsets[index + 1] - textOffsets[index], StandardCharsets.UTF_8);
+  }
+
+  //Arrays are written as their length followed by the values, big endian like DataOutputStream
+  private static void writeBytes(DataOutputStream out, byte[] values) throws IOException {
+    out.writeInt(values.length);
+    out.write(values);
+  }
+
+  private static void writeShorts(DataOutputStream out, short[] values) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(values.length * Short.BYTES);
+    buffer.asShortBuffer().put(values);
+    writeBytes(out, buffer.array());
+  }
+
+  private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(values.length * Integer.BYTES);
+    buffer.asIntBuffer().put(values);
+    writeBytes(out, buffer.array());
+  }
+
+  private static void writeLongs(DataOutputStream out, long[] values) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(values.length * Long.BYTES);
+    buffer.asLongBuffer().put(values);
+    writeBytes(out, buffer.array());
+  }
+
+  private static void writePostings(DataOutputStream out, int[][] postings) throws IOException {
+    out.writeInt(postings.length);
+    for (int[] posting : postings) {
+      writeInts(out, posting);
+    }
+  }
+
+  private static byte[] readBytes(ByteBuffer buffer) {
+    byte[] values = new byte[buffer.getInt()];
+    buffer.get(values);
+    return values;
+  }
+
+  private static short[] readShorts(ByteBuffer buffer) {
+    ByteBuffer bytes = slice(buffer);
+    short[] values = new short[bytes.remaining() / Short.BYTES];
+    bytes.asShortBuffer().get(values);
+    return values;
+  }
+
+  private static int[] readInts(ByteBuffer buffer) {
+    ByteBuffer bytes = slice(buffer);
+    int[] values = new int[bytes.remaining() / Integer.BYTES];
+    bytes.asIntBuffer().get(values);
+    return values;
+  }
+
+  private static long[] readLongs(ByteBuffer buffer) {
+    ByteBuffer bytes = slice(buffer);
+    long[] values = new long[bytes.remaining() / Long.BYTES];
+    bytes.asLongBuffer().get(values);
+    return values;
+  }
+
+  private static int[][] readPostings(ByteBuffer buffer) {
+    int[][] postings = new int[buffer.getInt()][];
+    for (int i = 0; i < postings.length; i++) {
+      postings[i] = readInts(buffer);
+    }
+    return postings;
+  }
+
+  /**
+   * Next length prefixed array of the buffer, without copying it.
+   */
+  private static ByteBuffer slice(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    ByteBuffer bytes = buffer.slice();
+    bytes.limit(length);
+    buffer.position(buffer.position() + length);
+    return bytes;
+  }
+
+  /**
+   * Result of query.
+   */
+  public static class Page {
+
+    private final List<BankDetails> banks;
+    private final int lastPosition;
+    private final boolean hasMore;
+
+    private Page(List<BankDetails> banks, int lastPosition, boolean hasMore) {
+      this.banks = banks;
+      this.lastPosition = lastPosition;
+      this.hasMore = hasMore;
+    }
+
+    public List<BankDetails> getBanks() {
+      return banks;
+    }
+
+    /**
+     * @return position of the last bank of the page, query continues after it for the next page
+     */
+    public int getLastPosition() {
+      return lastPosition;
+    }
+
+    /**
+     * @return true when more banks match after the page
+     */
+    public boolean hasMore() {
+      return hasMore;
+    }
+  }
+
+  /**
+   * Filters of a query compiled against the catalog by compile, immutable so it can be shared by requests.
+   */
+  public class Plan {
+
+    private final Condition[] conditions;
+    //Condition with the fewest candidates, the other ones are tested on its candidates, null when there is no filter
+    private final Condition driver;
+    private final boolean empty;
+
+    private Plan(Condition[] conditions) {
+      this.conditions = conditions;
+      Condition smallest = null;
+      for (Condition condition : conditions) {
+        if (smallest == null || condition.candidates < smallest.candidates) {
+          smallest = condition;
+        }
+      }
+      driver = smallest;
+      empty = smallest != null && smallest.candidates == 0;
+    }
+
+    /**
+     * Page of the matching banks in one lazy pass, nothing but the page is allocated. Candidates of the driver (all
+     * the banks when there is no filter) are taken in position order starting after the given position, the other
+     * filters are tested on every one of them, the first skip matches are counted and the pass stops as soon as the
+     * page and one more bank to tell if there is a next page are found.
+     * @param afterPosition banks up to this position are not part of the page, -1 for the first bank
+     * @param skip number of matching banks to skip
+     * @param size maximum size of the page
+     * @return
+     */
+    public Page page(int afterPosition, long skip, int size) {
+      List<BankDetails> banks = new ArrayList<>(Math.min(size, PAGE_CAPACITY));
+      if (empty) {
+        return new Page(banks, afterPosition, false);
+      }
+      Candidates candidates = new Candidates(driver, afterPosition);
+      long skipped = 0;
+      int lastPosition = afterPosition;
+      for (int position = candidates.next(); position >= 0; position = candidates.next()) {
+        if (!matches(position)) {
+          continue;
+        }
+        if (skipped < skip) {
+          skipped++;
+        } else if (banks.size() == size) {
+          return new Page(banks, lastPosition, true);
+        } else {
+          banks.add(materialize(position));
+          lastPosition = position;
+        }
+      }
+      return new Page(banks, lastPosition, false);
+    }
+
+    /**
+     * @return every matching bank in position order, tested as the stream is consumed
+     */
+    public Stream<BankDetails> stream() {
+      if (empty) {
+        return Stream.empty();
+      }
+      Candidates candidates = new Candidates(driver, -1);
+      return StreamSupport.intStream(new Spliterators.AbstractIntSpliterator(Long.MAX_VALUE,
+          Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.NONNULL) {
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+          for (int position = candidates.next(); position >= 0; position = candidates.next()) {
+            if (matches(position)) {
+              action.accept(position);
+              return true;
+            }
+          }
+          return false;
+        }
+
+        @Override
+        public Comparator<? super Integer> getComparator() {
+          return null;
+        }
+      }, false).mapToObj(BankIndex.this::materialize);
+    }
+
+    private boolean matches(int position) {
+      for (Condition condition : conditions) {
+        if (condition != driver && !matches(position, condition)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private boolean matches(int position, Condition condition) {
+      switch (condition.field) {
+        case COUNTRY_CODE:
+          return accepted(condition, countryCodeOfBank[position]);
+        case AUTH:
+          return accepted(condition, authOfBank[position]);
+        case PRODUCT:
+          for (int i = productOffsets[position]; i < productOffsets[position + 1]; i++) {
+            if (condition.codes[productCodes[i]]) {
+              return true;
+            }
+          }
+          return false;
+        default:
+          int slot = condition.field == Field.ID ? ID_SLOT : NAME_SLOT;
+          for (byte[] key : condition.keys) {
+            if (compareText(position, slot, key) == 0) {
+              return true;
+            }
+          }
+          return false;
+      }
+    }
+
+    private boolean accepted(Condition condition, short code) {
+      return code != NO_CODE && condition.codes[code];
+    }
+
+    /**
+     * Candidate positions of a condition in position order, merged from the ranges of its values.
+     */
+    private class Candidates {
+
+      private final int[][] positions;
+      private final int[] next;
+      private final int[] to;
+      private int position;
+
+      private Candidates(Condition driver, int afterPosition) {
+        position = afterPosition;
+        if (driver == null) {
+          positions = null;
+          next = null;
+          to = null;
+          return;
+        }
+        positions = driver.positions;
+        to = driver.to;
+        next = new int[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+          next[i] = lowerBound(positions[i], driver.from[i], to[i], afterPosition + 1);
+        }
+      }
+
+      /**
+       * @return next candidate, -1 when there is none
+       */
+      private int next() {
+        if (positions == null) {
+          return ++position < size ? position : -1;
+        }
+        while (true) {
+          int smallest = -1;
+          for (int i = 0; i < positions.length; i++) {
+            if (next[i] < to[i] && (smallest < 0 || positions[i][next[i]] < positions[smallest][next[smallest]])) {
+              smallest = i;
+            }
+          }
+          if (smallest < 0) {
+            return -1;
+          }
+          int candidate = positions[smallest][next[smallest]++];
+          //Same bank can be a candidate of more than one value, for example of two of its products
+          if (candidate > position) {
+            position = candidate;
+            return candidate;
+          }
+        }
+      }
+    }
+  }
+
+  private enum Field {
+    COUNTRY_CODE, AUTH, PRODUCT, ID, NAME
+  }
+
+  /**
+   * Filter of a query resolved against the catalog. Candidates of value i are positions[i][from[i], to[i]),
+   * every range in position order.
+   */
+  private static class Condition {
+
+    private final Field field;
+    //Accepted country code, auth or product codes, a bank matches with any of its products
+    private final boolean[] codes;
+    //Folded UTF-8 ids or names
+    private final byte[][] keys;
+    private final int[][] positions;
+    private final int[] from;
+    private final int[] to;
+    private final long candidates;
+
+    private Condition(Field field, boolean[] codes, byte[][] keys, int[][] positions, int[] from, int[] to) {
+      this.field = field;
+      this.codes = codes;
+      this.keys = keys;
+      this.positions = positions;
+      this.from = from;
+      this.to = to;
+      long count = 0;
+      for (int i = 0; i < positions.length; i++) {
+        count += to[i] - from[i];
+      }
+      this.candidates = count;
+    }
+  }
+
+  /**
+   * Encodes the banks one at a time into the compact form, so a large catalog never has to be held as objects.
+   */
+  public static class Builder {
+
+    private final Dictionary countryCodes = new Dictionary();
+    private final Dictionary auths = new Dictionary();
+    private final Dictionary products = new Dictionary();
+    private byte[] text = new byte[1024];
+    private int[] textOffsets = new int[33];
+    private final BitSet nullText = new BitSet();
+    private short[] countryCodeOfBank = new short[16];
+    private short[] authOfBank = new short[16];
+    private int[] productCodes = new int[32];
+    private int[] productOffsets = new int[17];
+    private final BitSet nullProducts = new BitSet();
+    private int size;
+    private boolean orderById;
+    private boolean uniqueIds;
+
+    private Builder() {
+    }
+
+    /**
+     * Orders the banks by id, the order the id filter and the cursors use, instead of the order they are added.
+     * @return
+     */
+    public Builder orderById() {
+      orderById = true;
+      return this;
+    }
+
+    /**
+     * Same as orderById, when the same id is added more than once only the last one is kept.
+     * @return
+     */
+    public Builder orderByUniqueId() {
+      uniqueIds = true;
+      return orderById();
+    }
+
+    public Builder add(BankDetails bank) {
+      if (size == countryCodeOfBank.length) {
+        int capacity = size * 2;
+        countryCodeOfBank = Arrays.copyOf(countryCodeOfBank, capacity);
+        authOfBank = Arrays.copyOf(authOfBank, capacity);
+        textOffsets = Arrays.copyOf(textOffsets, capacity * 2 + 1);
+        productOffsets = Arrays.copyOf(productOffsets, capacity + 1);
+      }
+      addText(ID_SLOT, bank.getId());
+      addText(NAME_SLOT, bank.getName());
+      countryCodeOfBank[size] = countryCodes.encode(bank.getCountryCode());
+      authOfBank[size] = auths.encode(bank.getAuth());
+      int productCount = productOffsets[size];
+      if (bank.getProducts() == null) {
+        nullProducts.set(size);
+      } else {
+        for (Object product : bank.getProducts()) {
+          if (productCount == productCodes.length) {
+            productCodes = Arrays.copyOf(productCodes, productCount * 2);
+          }
+          productCodes[productCount++] = products.encode(String.valueOf(product));
+        }
+      }
+      productOffsets[++size] = productCount;
+      return this;
+    }
+
+    public int size() {
+      return size;
+    }
+
+    public BankIndex build() {
+      if (!orderById) {
+        return new BankIndex(this, IntStream.range(0, size).toArray());
+      }
+      //Sort is stable, so the last added bank of every id is the last one of its run
+      int[] byId = sortedBy(text, textOffsets, nullText, size, ID_SLOT, true);
+      if (!uniqueIds) {
+        return new BankIndex(this, byId);
+      }
+      int[] order = new int[size];
+      int count = 0;
+      for (int i = 0; i < byId.length; i++) {
+        if (i + 1 == byId.length || !sameText(byId[i], byId[i + 1])) {
+          order[count++] = byId[i];
+        }
+      }
+      return new BankIndex(this, Arrays.copyOf(order, count));
+    }
+
+    private void addText(int slot, String value) {
+      int index = size * 2 + slot;
+      int start = textOffsets[index];
+      if (value == null) {
+        nullText.set(index);
+        textOffsets[index + 1] = start;
+        return;
+      }
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      if (start + bytes.length > text.length) {
+        text = Arrays.copyOf(text, Math.max(text.length * 2, start + bytes.length));
+      }
+      System.arraycopy(bytes, 0, text, start, bytes.length);
+      textOffsets[index + 1] = start + bytes.length;
+    }
+
+    private boolean sameText(int first, int second) {
+      int firstIndex = first * 2 + ID_SLOT;
+      int secondIndex = second * 2 + ID_SLOT;
+      if (nullText.get(firstIndex) || nullText.get(secondIndex)) {
+        return nullText.get(firstIndex) && nullText.get(secondIndex);
+      }
+      return Arrays.equals(text, textOffsets[firstIndex], textOffsets[firstIndex + 1],
+          text, textOffsets[secondIndex], textOffsets[secondIndex + 1]);
+    }
+  }
+
+  /**
+   * Distinct values of a field, code of a value is its position in the order it was first seen.
+   */
+  private static class Dictionary {
+
+    private static final int[] NO_CODES = new int[0];
+
+    private final List<String> values = new ArrayList<>();
+    private final Map<String, Short> codes = new HashMap<>();
+    //Codes of the values which are equal ignoring the case of ASCII letters, by folded value
+    private final Map<String, int[]> foldedCodes = new HashMap<>();
+
+    private short encode(String value) {
+      if (value == null) {
+        return NO_CODE;
+      }
+      return codes.computeIfAbsent(value, key -> {
+        if (values.size() > Short.MAX_VALUE) {
+          throw new IllegalArgumentException("Too many distinct values to encode " + value);
+        }
+        values.add(key);
+        short code = (short) (values.size() - 1);
+        foldedCodes.merge(foldCase(key), new int[]{code}, (existing, added) -> {
+          int[] merged = Arrays.copyOf(existing, existing.length + 1);
+          merged[existing.length] = added[0];
+          return merged;
+        });
+        return code;
+      });
+    }
+
+    private int[] findIgnoreCase(String value) {
+      return foldedCodes.getOrDefault(foldCase(value), NO_CODES);
+    }
+
+    private String decode(int code) {
+      return code == NO_CODE ? null : values.get(code);
+    }
+
+    private int size() {
+      return values.size();
+    }
+
+    private void writeTo(DataOutputStream out) throws IOException {
+      out.writeInt(values.size());
+      for (String value : values) {
+        writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+      }
+    }
+
+    private static Dictionary readFrom(ByteBuffer buffer) {
+      Dictionary dictionary = new Dictionary();
+      int size = buffer.getInt();
+      for (int i = 0; i < size; i++) {
+        dictionary.encode(new String(readBytes(buffer), StandardCharsets.UTF_8));
+      }
+      return dictionary;
+    }
+  }
+}
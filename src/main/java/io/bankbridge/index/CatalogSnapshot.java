@@ -0,0 +1,119 @@
+package io.bankbridge.index;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshot of a catalog on local disk, so a restarted node can serve its banks without parsing and indexing
+ * the JSON source again. The catalog is read into heap arrays in one pass over the file, without any JSON parsing.
+ *
+ * Layout (big endian):
+ * magic, format version, checksum of the source the catalog was built from, catalog (BankIndex.writeTo),
+ * CRC32 of everything before it.
+ * A snapshot is only used when all of them match, otherwise the caller is expected to load the source.
+ */
+public class CatalogSnapshot {
+
+  private static final int MAGIC = 0x42424353;
+  //Increased whenever the layout of the snapshot or of BankIndex.writeTo changes
+  static final int FORMAT_VERSION = 3;
+  private static final int HEADER_BYTES = Integer.BYTES * 2 + Long.BYTES;
+  private static final int BUFFER_SIZE = 64 * 1024;
+  //Catalog is read into one heap buffer, so it is limited by the size of an array
+  private static final long MAX_BYTES = Integer.MAX_VALUE - 8;
+
+  private CatalogSnapshot() {
+  }
+
+  /**
+   * Writes the snapshot next to the path and then moves it in place, so a crash while writing never leaves
+   * a partial snapshot behind.
+   * @param path snapshot file
+   * @param sourceChecksum checksum of the source of the catalog
+   * @param index catalog
+   * @throws IOException
+   */
+  public static void write(Path path, long sourceChecksum, BankIndex index) throws IOException {
+    Path directory = path.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+    try {
+      CRC32 crc = new CRC32();
+      try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(temporary), BUFFER_SIZE)) {
+        DataOutputStream out = new DataOutputStream(new CheckedOutputStream(file, crc));
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(sourceChecksum);
+        index.writeTo(out);
+        out.flush();
+        new DataOutputStream(file).writeLong(crc.getValue());
+      }
+      Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /**
+   * @param path snapshot file
+   * @param sourceChecksum checksum of the current source
+   * @return catalog of the snapshot
+   * @throws IOException when the snapshot is missing, too large, corrupt, of another format or built from another
+   * source
+   */
+  public static BankIndex read(Path path, long sourceChecksum) throws IOException {
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER_BYTES + Long.BYTES) {
+        throw new IOException("Snapshot " + path + " is truncated");
+      }
+      if (size > MAX_BYTES) {
+        throw new IOException("Snapshot " + path + " of " + size + " bytes is too large");
+      }
+      buffer = ByteBuffer.allocate((int) size);
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer) < 0) {
+          throw new IOException("Snapshot " + path + " is truncated");
+        }
+      }
+      buffer.flip();
+    }
+    int end = buffer.limit() - Long.BYTES;
+    CRC32 crc = new CRC32();
+    crc.update(buffer.duplicate().limit(end));
+    if (crc.getValue() != buffer.getLong(end)) {
+      throw new IOException("Snapshot " + path + " is corrupt");
+    }
+    if (buffer.getInt() != MAGIC) {
+      throw new IOException(path + " is not a catalog snapshot");
+    }
+    int format = buffer.getInt();
+    if (format != FORMAT_VERSION) {
+      throw new IOException("Snapshot format " + format + " of " + path + " is not supported");
+    }
+    if (buffer.getLong() != sourceChecksum) {
+      throw new IOException("Snapshot " + path + " is out of date");
+    }
+    buffer.limit(end);
+    try {
+      BankIndex index = BankIndex.readFrom(buffer);
+      if (buffer.hasRemaining()) {
+        throw new IllegalArgumentException(buffer.remaining() + " bytes after the catalog");
+      }
+      return index;
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Snapshot " + path + " is corrupt", e);
+    }
+  }
+}
@@ -0,0 +1,177 @@
+package io.bankbridge.integration;
+
+import io.bankbridge.errorhandler.BanksCustomException;
+import io.bankbridge.errorhandler.ExceptionHandler;
+import io.bankbridge.handler.BankQuery;
+import io.bankbridge.handler.BanksRemoteCalls;
+import io.bankbridge.response.RenderedPage;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Jetty handler which serves /v2/banks/all asynchronously and passes every other request to spark.
+ * Spark routes have to return the body from the server thread, so the route would hold the thread for the whole
+ * remote fan-out. Here the request is suspended with servlet async, the server thread goes back to the pool while
+ * the banks are called and the response is written once the page is ready.
+ * A suspended request is answered with 503 when the page is not ready within the async timeout, or when the server
+ * pool can't take the task writing the response.
+ */
+public class AsyncBanksHandler extends HandlerWrapper {
+
+  private static final Logger log = LoggerFactory.getLogger(AsyncBanksHandler.class);
+
+  public static final String REMOTE_BANKS_PATH = "/v2/banks/all";
+  private static final String CONTENT_TYPE = "application/json";
+  private static final String UNAVAILABLE_MSG = "Remote banks are not available, try again later";
+  //Time given to render and write the page after the fan-out deadline, before the request is timed out
+  private static final long WRITE_GRACE_MILLIS = 1000;
+
+  private final BanksRemoteCalls banksRemoteCalls;
+  private final long asyncTimeoutMillis;
+
+  /**
+   * @param banksRemoteCalls
+   * @param deadlineMillis deadline of the remote banks fan-out, suspended requests time out a bit after it
+   */
+  public AsyncBanksHandler(BanksRemoteCalls banksRemoteCalls, long deadlineMillis) {
+    this.banksRemoteCalls = banksRemoteCalls;
+    this.asyncTimeoutMillis = deadlineMillis + WRITE_GRACE_MILLIS;
+  }
+
+  @Override
+  public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+      throws IOException, ServletException {
+    if (!"GET".equals(request.getMethod()) || !REMOTE_BANKS_PATH.equals(target)
+        || request.getDispatcherType() != DispatcherType.REQUEST) {
+      super.handle(target, baseRequest, request, response);
+      return;
+    }
+    baseRequest.setHandled(true);
+    BankQuery query;
+    try {
+      query = BankQuery.parse(request.getParameterMap());
+    } catch (BanksCustomException exception) {
+      writeError(response, exception.getStatus(), exception.getMessage());
+      return;
+    }
+    AsyncContext asyncContext = request.startAsync();
+    asyncContext.setTimeout(asyncTimeoutMillis);
+    //Set by whichever answers first, the page or the timeout, so the response is written and completed only once
+    AtomicBoolean answered = new AtomicBoolean();
+    asyncContext.addListener(new TimeoutListener(answered));
+    banksRemoteCalls.renderAsync(query).whenComplete((renderedPage, exception) -> {
+      try {
+        //Writing from the server pool, so the threads completing the remote calls are not used for the client IO
+        getServer().getThreadPool().execute(() -> answer(asyncContext, answered, renderedPage, exception));
+      } catch (RejectedExecutionException rejected) {
+        log.warn("Server pool rejected writing the remote banks response {}", rejected.getMessage());
+        answer(asyncContext, answered, null, rejected);
+      }
+    });
+  }
+
+  private static void answer(AsyncContext asyncContext, AtomicBoolean answered, RenderedPage renderedPage,
+      Throwable exception) {
+    if (!answered.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      HttpServletResponse asyncResponse = (HttpServletResponse) asyncContext.getResponse();
+      if (exception == null) {
+        writePage(asyncResponse, renderedPage);
+      } else if (exception instanceof RejectedExecutionException) {
+        writeError(asyncResponse, HttpServletResponse.SC_SERVICE_UNAVAILABLE, UNAVAILABLE_MSG);
+      } else {
+        writeError(asyncResponse, exception);
+      }
+    } catch (IOException ioException) {
+      log.warn("Not able to write the remote banks response {}", ioException.getMessage());
+    } finally {
+      asyncContext.complete();
+    }
+  }
+
+  private static void writePage(HttpServletResponse response, RenderedPage renderedPage) throws IOException {
+    response.setStatus(HttpServletResponse.SC_OK);
+    response.setContentType(CONTENT_TYPE);
+    //Banks failed or not answered within the deadline are marked in header, body is kept as the list of banks
+    if (renderedPage.isPartial()) {
+      response.setHeader(BanksController.UNAVAILABLE_BANKS_HEADER,
+          String.join(",", renderedPage.getUnavailableBanks()));
+    }
+    if (renderedPage.getNextCursor() != null) {
+      response.setHeader(BanksController.NEXT_CURSOR_HEADER, renderedPage.getNextCursor());
+    }
+    response.getOutputStream().write(renderedPage.getBody());
+  }
+
+  private static void writeError(HttpServletResponse response, Throwable exception) throws IOException {
+    Throwable cause = exception instanceof CompletionException && exception.getCause() != null
+        ? exception.getCause() : exception;
+    if (cause instanceof BanksCustomException) {
+      writeError(response, ((BanksCustomException) cause).getStatus(), cause.getMessage());
+    } else {
+      log.error("Error in handling the remote banks request {}", cause.getMessage());
+      writeError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, ExceptionHandler.INTERNAL_ERROR_MSG);
+    }
+  }
+
+  private static void writeError(HttpServletResponse response, int status, String message) throws IOException {
+    response.setStatus(status);
+    response.setContentType(CONTENT_TYPE);
+    response.getOutputStream().write(ExceptionHandler.renderError(message).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Answers with 503 when the page is not written within the async timeout.
+   */
+  private static class TimeoutListener implements AsyncListener {
+
+    private final AtomicBoolean answered;
+
+    private TimeoutListener(AtomicBoolean answered) {
+      this.answered = answered;
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) throws IOException {
+      if (!answered.compareAndSet(false, true)) {
+        return;
+      }
+      log.warn("Remote banks response not ready within the async timeout");
+      try {
+        writeError((HttpServletResponse) event.getAsyncContext().getResponse(),
+            HttpServletResponse.SC_SERVICE_UNAVAILABLE, UNAVAILABLE_MSG);
+      } finally {
+        event.getAsyncContext().complete();
+      }
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+    }
+  }
+}
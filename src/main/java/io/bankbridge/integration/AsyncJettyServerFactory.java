@@ -0,0 +1,43 @@
+package io.bankbridge.integration;
+
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import spark.embeddedserver.jetty.JettyServerFactory;
+
+/**
+ * Creates the embedded Jetty server of spark the same way as spark does, except the handler set by spark is wrapped
+ * with the given handler. Spark doesn't give access to its server, so this is the only place to put a handler
+ * in front of it.
+ */
+public class AsyncJettyServerFactory implements JettyServerFactory {
+
+  private final HandlerWrapper handlerWrapper;
+
+  public AsyncJettyServerFactory(HandlerWrapper handlerWrapper) {
+    this.handlerWrapper = handlerWrapper;
+  }
+
+  @Override
+  public Server create(int maxThreads, int minThreads, int threadTimeoutMillis) {
+    if (maxThreads <= 0) {
+      return create(null);
+    }
+    //Same defaults as spark
+    return create(new QueuedThreadPool(maxThreads, minThreads > 0 ? minThreads : 8,
+        threadTimeoutMillis > 0 ? threadTimeoutMillis : 60000));
+  }
+
+  @Override
+  public Server create(ThreadPool threadPool) {
+    return new Server(threadPool) {
+      @Override
+      public void setHandler(Handler handler) {
+        handlerWrapper.setHandler(handler);
+        super.setHandler(handlerWrapper);
+      }
+    };
+  }
+}
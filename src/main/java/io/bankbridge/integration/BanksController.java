@@ -5,19 +5,62 @@ import static spark.Spark.after;
 import static spark.Spark.before;
 import static spark.Spark.exception;
 import static spark.Spark.get;
+import static spark.Spark.post;
 
+import io.bankbridge.config.RemoteBanksConfig;
 import io.bankbridge.errorhandler.ExceptionHandler;
+import io.bankbridge.handler.BankFiles;
+import io.bankbridge.handler.BankQuery;
 import io.bankbridge.handler.BanksCacheBased;
+import io.bankbridge.handler.BanksReloader;
 import io.bankbridge.handler.BanksRemoteCalls;
+import io.bankbridge.metrics.PrometheusWriter;
 import io.bankbridge.response.BanksResponseTransformer;
+import io.bankbridge.response.NdjsonWriter;
+import io.bankbridge.response.RenderedPage;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
+
+import java.util.List;
+import java.util.Map;
 
 public class BanksController {
 
+  /**
+   * Response header which holds the names of the banks missing in a partial v2 response
+   */
+  public static final String UNAVAILABLE_BANKS_HEADER = "X-Unavailable-Banks";
+
+  /**
+   * Response header which holds the cursor of the next page, sent back in the cursor query param to get that page
+   */
+  public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
   public BanksController() throws Exception {
+    this(RemoteBanksConfig.load(), null);
+  }
+
+  /**
+   * @param remoteBanksConfig settings for calling the remote banks
+   * @param threadPool thread pool of the server, null for the spark default pool
+   * @throws Exception
+   */
+  public BanksController(RemoteBanksConfig remoteBanksConfig, ThreadPool threadPool) throws Exception {
 
-    BanksCacheBased.init();
+    BankFiles.setDirectory(remoteBanksConfig.getReload().getDirectory());
+    BanksCacheBased.init(remoteBanksConfig);
     //Refactored BanksRemoteCalls little bit with constructor initiation
-    BanksRemoteCalls banksRemoteCalls = new BanksRemoteCalls();
+    BanksRemoteCalls banksRemoteCalls = new BanksRemoteCalls(remoteBanksConfig);
+    BanksReloader banksReloader = new BanksReloader(banksRemoteCalls, remoteBanksConfig.getReload());
+    banksReloader.start();
+
+    //v2 banks are served by AsyncBanksHandler in front of spark, so no server thread waits for the remote banks.
+    //Must be registered before the first route, because the server is created along with the first route.
+    EmbeddedServers.add(EmbeddedServers.Identifiers.JETTY,
+        new EmbeddedJettyFactory(new AsyncJettyServerFactory(new AsyncBanksHandler(banksRemoteCalls,
+            remoteBanksConfig.getTimeouts().getDeadlineMillis())))
+            .withThreadPool(threadPool));
 
     //Filter used for request validations, currently no path pattern is given but we can give pattern matches with required url also
     before("*/banks/*",(request, response) -> validateInput(request));
@@ -26,14 +69,51 @@ public class BanksController {
      * Also Updated routes with passing queryMap only so from Handler layer it will be reusable in other frameworks too rather than
      * keeping dependency with spark
      */
-    get("/v1/banks/all",
-        (request, response) -> BanksCacheBased.handle(request.queryMap().toMap()),
+    get("/v1/banks/all", (request, response) -> {
+      RenderedPage renderedPage = BanksCacheBased.render(BankQuery.of(request));
+      if (renderedPage.getNextCursor() != null) {
+        response.header(NEXT_CURSOR_HEADER, renderedPage.getNextCursor());
+      }
+      return renderedPage.getBody();
+    });
+    //Streaming variant of v2, one bank per line as soon as it arrives and the unavailable banks in the last line
+    get("/v2/banks/stream", (request, response) -> {
+      response.type(NdjsonWriter.CONTENT_TYPE);
+      //Committing the headers straight away, so the client doesn't wait for the first bank to get them
+      response.raw().flushBuffer();
+      NdjsonWriter ndjsonWriter = new NdjsonWriter(response.raw().getOutputStream());
+      List<String> unavailableBanks = banksRemoteCalls.stream(BankQuery.of(request), ndjsonWriter::write);
+      if (!unavailableBanks.isEmpty()) {
+        ndjsonWriter.write(Map.of("unavailableBanks", unavailableBanks));
+      }
+      return "";
+    });
+    get("/v2/banks/circuit-breakers", (request, response) -> banksRemoteCalls.getCircuitBreakers(),
         BanksResponseTransformer::render);
-    get("/v2/banks/all", (request, response) -> banksRemoteCalls.handle(request.queryMap().toMap()),
+    get("/v2/banks/limiters", (request, response) -> banksRemoteCalls.getLimiters(),
         BanksResponseTransformer::render);
+    //Reloads banks-v1.json and banks-v2.json and returns the versions of the published banks, only with the admin token
+    if (banksReloader.isAdminEnabled()) {
+      post("/admin/reload", (request, response) -> {
+        banksReloader.authorize(request.headers(BanksReloader.ADMIN_TOKEN_HEADER));
+        return banksReloader.reload();
+      }, BanksResponseTransformer::render);
+    }
+    get("/metrics", (request, response) -> {
+      response.type(PrometheusWriter.CONTENT_TYPE);
+      PrometheusWriter writer = new PrometheusWriter();
+      BanksCacheBased.writeMetrics(writer);
+      banksRemoteCalls.writeMetrics(writer);
+      return writer.toString();
+    });
 
     ExceptionHandler.errorHandler();
-    after((request, response) -> response.type("application/json"));
+    //Routes which are not JSON set their own content type
+    after((request, response) -> {
+      if (response.type() == null) {
+        response.type("application/json");
+      }
+    });
   }
 
 }
@@ -0,0 +1,101 @@
+package io.bankbridge.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free latency histogram with log-linear buckets in microseconds.
+ * Values below 16 micros have their own bucket, every power of two above is split into 8 buckets,
+ * so percentiles are accurate within 12.5%. Recording doesn't allocate, it only increments counters.
+ */
+public class LatencyHistogram {
+
+  private static final int LINEAR_BUCKETS = 16;
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  //Highest power of two tracked is 2^40 micros (~12 days), bigger values are counted in the last bucket
+  private static final int MAX_EXPONENT = 40;
+  private static final int BUCKETS = LINEAR_BUCKETS + (MAX_EXPONENT - 3) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sumMicros = new LongAdder();
+
+  public void record(long durationNanos) {
+    long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(durationNanos));
+    counts.incrementAndGet(bucketIndex(micros));
+    count.increment();
+    sumMicros.add(micros);
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getSumMicros() {
+    return sumMicros.sum();
+  }
+
+  /**
+   * Value at the given quantile in microseconds, upper bound of the bucket containing the quantile.
+   * @param quantile between 0 and 1
+   * @return 0 when nothing is recorded
+   */
+  public long getValueAtQuantile(double quantile) {
+    return getValueAtQuantile(quantile, this);
+  }
+
+  /**
+   * Value at the given quantile of the values recorded in all the histograms together, for example the windows of
+   * a windowed latency.
+   * @param quantile between 0 and 1
+   * @param histograms
+   * @return 0 when nothing is recorded
+   */
+  public static long getValueAtQuantile(double quantile, LatencyHistogram... histograms) {
+    long total = 0;
+    long[] snapshot = new long[BUCKETS];
+    for (LatencyHistogram histogram : histograms) {
+      for (int i = 0; i < BUCKETS; i++) {
+        long bucketCount = histogram.counts.get(i);
+        snapshot[i] += bucketCount;
+        total += bucketCount;
+      }
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(quantile * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return bucketUpperBound(i);
+      }
+    }
+    return bucketUpperBound(BUCKETS - 1);
+  }
+
+  static int bucketIndex(long micros) {
+    if (micros < LINEAR_BUCKETS) {
+      return (int) micros;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(micros);
+    if (exponent > MAX_EXPONENT) {
+      return BUCKETS - 1;
+    }
+    int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return LINEAR_BUCKETS + (exponent - 4) * SUB_BUCKETS + subBucket;
+  }
+
+  static long bucketUpperBound(int index) {
+    if (index < LINEAR_BUCKETS) {
+      return index;
+    }
+    int exponent = (index - LINEAR_BUCKETS) / SUB_BUCKETS + 4;
+    int subBucket = (index - LINEAR_BUCKETS) % SUB_BUCKETS;
+    long bucketWidth = 1L << (exponent - SUB_BUCKET_BITS);
+    return (1L << exponent) + (subBucket + 1) * bucketWidth - 1;
+  }
+}
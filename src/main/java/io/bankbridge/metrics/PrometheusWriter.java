@@ -0,0 +1,95 @@
+package io.bankbridge.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the Prometheus text exposition format (version 0.0.4).
+ * Every metric family is started with family, followed by its samples. Labels are given as name, value pairs.
+ */
+public class PrometheusWriter {
+
+  public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  public static final String COUNTER = "counter";
+  public static final String GAUGE = "gauge";
+  public static final String SUMMARY = "summary";
+
+  private static final double[] QUANTILES = {0.5, 0.95, 0.99, 0.999};
+
+  private final StringBuilder text = new StringBuilder();
+
+  /**
+   * Writes HELP and TYPE of the metric family, must be called once before its samples.
+   * @param name
+   * @param type counter, gauge or summary
+   * @param help
+   * @return
+   */
+  public PrometheusWriter family(String name, String type, String help) {
+    text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    return this;
+  }
+
+  /**
+   * @param name
+   * @param value
+   * @param labels label name, value pairs
+   * @return
+   */
+  public PrometheusWriter sample(String name, double value, String... labels) {
+    text.append(name);
+    if (labels.length > 0) {
+      text.append('{');
+      for (int i = 0; i < labels.length; i += 2) {
+        if (i > 0) {
+          text.append(',');
+        }
+        text.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+      }
+      text.append('}');
+    }
+    text.append(' ').append(format(value)).append('\n');
+    return this;
+  }
+
+  /**
+   * Writes the p50, p95, p99 and p999 of the histogram in seconds along with its sum and count.
+   * @param name
+   * @param histogram
+   * @param labels label name, value pairs
+   * @return
+   */
+  public PrometheusWriter summary(String name, LatencyHistogram histogram, String... labels) {
+    String[] quantileLabels = new String[labels.length + 2];
+    System.arraycopy(labels, 0, quantileLabels, 0, labels.length);
+    quantileLabels[labels.length] = "quantile";
+    for (double quantile : QUANTILES) {
+      quantileLabels[labels.length + 1] = format(quantile);
+      sample(name, toSeconds(histogram.getValueAtQuantile(quantile)), quantileLabels);
+    }
+    sample(name + "_sum", toSeconds(histogram.getSumMicros()), labels);
+    sample(name + "_count", histogram.getCount(), labels);
+    return this;
+  }
+
+  @Override
+  public String toString() {
+    return text.toString();
+  }
+
+  private static double toSeconds(long micros) {
+    return micros / (double) TimeUnit.SECONDS.toMicros(1);
+  }
+
+  private static String format(double value) {
+    if (value == Math.rint(value) && !Double.isInfinite(value)) {
+      return Long.toString((long) value);
+    }
+    return Double.toString(value);
+  }
+
+  private static String escape(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+}
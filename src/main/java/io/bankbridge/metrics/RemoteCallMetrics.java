@@ -0,0 +1,77 @@
+package io.bankbridge.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and outcome counters of the calls to one remote bank. Recording only increments counters.
+ */
+public class RemoteCallMetrics {
+
+  private final LatencyHistogram latency = new LatencyHistogram();
+  private final LongAdder success = new LongAdder();
+  private final LongAdder non200 = new LongAdder();
+  private final LongAdder exception = new LongAdder();
+  private final LongAdder shortCircuited = new LongAdder();
+  private final LongAdder shed = new LongAdder();
+
+  public void onSuccess(long durationNanos) {
+    latency.record(durationNanos);
+    success.increment();
+  }
+
+  /**
+   * Bank answered with a status other than 200 and 304.
+   * @param durationNanos
+   */
+  public void onNon200(long durationNanos) {
+    latency.record(durationNanos);
+    non200.increment();
+  }
+
+  /**
+   * Call failed, timed out or the body couldn't be decoded.
+   * @param durationNanos
+   */
+  public void onException(long durationNanos) {
+    latency.record(durationNanos);
+    exception.increment();
+  }
+
+  /**
+   * Call skipped because the circuit of the bank is open.
+   */
+  public void onShortCircuited() {
+    shortCircuited.increment();
+  }
+
+  /**
+   * Call rejected by the concurrency limiter.
+   */
+  public void onShed() {
+    shed.increment();
+  }
+
+  public LatencyHistogram getLatency() {
+    return latency;
+  }
+
+  public long getSuccess() {
+    return success.sum();
+  }
+
+  public long getNon200() {
+    return non200.sum();
+  }
+
+  public long getException() {
+    return exception.sum();
+  }
+
+  public long getShortCircuited() {
+    return shortCircuited.sum();
+  }
+
+  public long getShed() {
+    return shed.sum();
+  }
+}
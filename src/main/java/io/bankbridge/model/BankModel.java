@@ -1,6 +1,7 @@
 package io.bankbridge.model;
 
 import java.util.ArrayList;
+import java.util.Objects;
 
 public class BankModel {
 	
@@ -49,4 +50,23 @@ public class BankModel {
 	public void setProducts(ArrayList products) {
 		this.products = products;
 	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (!(other instanceof BankModel)) {
+			return false;
+		}
+		BankModel bankModel = (BankModel) other;
+		return Objects.equals(bic, bankModel.bic) && Objects.equals(name, bankModel.name)
+				&& Objects.equals(countryCode, bankModel.countryCode) && Objects.equals(auth, bankModel.auth)
+				&& Objects.equals(products, bankModel.products);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(bic, name, countryCode, auth, products);
+	}
 }
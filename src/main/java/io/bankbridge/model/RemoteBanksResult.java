@@ -0,0 +1,33 @@
+package io.bankbridge.model;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of one fan-out to the remote banks.
+ * banks -> decoded bank details keyed by the remote uri
+ * unavailableUris -> remote uris which didn't answer successfully before the deadline
+ */
+public class RemoteBanksResult {
+
+	private final Map<String, BankModel> banks;
+	private final List<String> unavailableUris;
+
+	public RemoteBanksResult(Map<String, BankModel> banks, List<String> unavailableUris) {
+		this.banks = Collections.unmodifiableMap(banks);
+		this.unavailableUris = Collections.unmodifiableList(unavailableUris);
+	}
+
+	public Map<String, BankModel> getBanks() {
+		return banks;
+	}
+
+	public BankModel getBank(String uri) {
+		return banks.get(uri);
+	}
+
+	public List<String> getUnavailableUris() {
+		return unavailableUris;
+	}
+}
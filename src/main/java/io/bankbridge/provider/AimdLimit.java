@@ -0,0 +1,60 @@
+package io.bankbridge.provider;
+
+import io.bankbridge.config.RemoteBanksConfig;
+
+/**
+ * Additive increase / multiplicative decrease of the concurrency limit of one bank, based on the measured RTT.
+ * The lowest RTT seen in the latest window of samples is taken as the RTT of the unloaded bank. A call which failed
+ * or took more than rttTolerance times of it means the bank is queueing, so the limit is multiplied by backoffRatio.
+ * Otherwise the limit grows by one, but only while at least half of it is in use so an idle bank doesn't collect
+ * a limit it never proved it can handle.
+ */
+public class AimdLimit {
+
+  //Lowest RTT is taken again from every window of this many samples, so the baseline follows permanent changes
+  private static final int RTT_WINDOW = 500;
+
+  private final RemoteBanksConfig.Limiter config;
+  private int limit;
+  private long baselineRttNanos = Long.MAX_VALUE;
+  private long windowMinRttNanos = Long.MAX_VALUE;
+  private int windowSamples;
+
+  public AimdLimit(RemoteBanksConfig.Limiter config) {
+    this.config = config;
+    this.limit = clamp(config.getInitialLimit());
+  }
+
+  /**
+   * Updates the limit with the result of one call.
+   * @param rttNanos time taken by the call
+   * @param inUse calls running when the call was completed
+   * @param dropped true when the call failed, timed out or the bank asked us to slow down
+   * @return new limit
+   */
+  public synchronized int onSample(long rttNanos, int inUse, boolean dropped) {
+    if (!dropped) {
+      baselineRttNanos = Math.min(baselineRttNanos, rttNanos);
+      windowMinRttNanos = Math.min(windowMinRttNanos, rttNanos);
+      if (++windowSamples >= RTT_WINDOW) {
+        baselineRttNanos = windowMinRttNanos;
+        windowMinRttNanos = Long.MAX_VALUE;
+        windowSamples = 0;
+      }
+    }
+    if (dropped || rttNanos > baselineRttNanos * config.getRttTolerance()) {
+      limit = clamp((int) (limit * config.getBackoffRatio()));
+    } else if (inUse * 2 >= limit) {
+      limit = clamp(limit + 1);
+    }
+    return limit;
+  }
+
+  public synchronized int getLimit() {
+    return limit;
+  }
+
+  private int clamp(int value) {
+    return Math.max(config.getMinLimit(), Math.min(config.getMaxLimitPerBank(), value));
+  }
+}
@@ -0,0 +1,215 @@
+package io.bankbridge.provider;
+
+import io.bankbridge.config.RemoteBanksConfig;
+import io.bankbridge.metrics.PrometheusWriter;
+import io.bankbridge.model.BankModel;
+import io.bankbridge.model.RemoteBanksResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * RemoteBanksProvider which keeps the result of every bank in memory and calls the wrapped provider only when needed.
+ * Each bank entry goes through 3 stages based on its age
+ * fresh -> served directly from memory
+ * stale -> served directly from memory and one background refresh is started for that bank
+ * expired -> not served, bank is fetched inline along with the other expired or missing banks
+ * Failed banks are not cached so they are retried on the next request.
+ */
+public class CachingRemoteBanksProvider implements RemoteBanksProvider {
+
+  private static final Logger log = LoggerFactory.getLogger(CachingRemoteBanksProvider.class);
+
+  private final RemoteBanksProvider remoteBanksProvider;
+  private final long freshMillis;
+  private final long staleMillis;
+  private final LongSupplier clock;
+  private final ExecutorService refreshExecutor;
+  private final Map<String, CachedBank> cache = new ConcurrentHashMap<>();
+  private final LongAdder freshHits = new LongAdder();
+  private final LongAdder staleHits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public CachingRemoteBanksProvider(RemoteBanksProvider remoteBanksProvider, RemoteBanksConfig.Cache config) {
+    this(remoteBanksProvider, config, System::currentTimeMillis);
+  }
+
+  /**
+   * Constructor with the clock used for calculating the age of the entries, mainly for testing.
+   * @param remoteBanksProvider provider used for calling the remote banks
+   * @param config cache configuration
+   * @param clock current time in milliseconds
+   */
+  public CachingRemoteBanksProvider(RemoteBanksProvider remoteBanksProvider, RemoteBanksConfig.Cache config,
+      LongSupplier clock) {
+    this.remoteBanksProvider = remoteBanksProvider;
+    this.freshMillis = config.getFreshMillis();
+    this.staleMillis = config.getStaleMillis();
+    this.clock = clock;
+    this.refreshExecutor = Executors.newFixedThreadPool(config.getRefreshThreads(), runnable -> {
+      Thread thread = new Thread(runnable, "remote-banks-refresh");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @Override
+  public RemoteBanksResult getRemoteBanksDetails(List<String> uris) {
+    Map<String, BankModel> banks = new LinkedHashMap<>();
+    List<String> expiredUris = readCache(uris, banks::put);
+    if (expiredUris.isEmpty()) {
+      return new RemoteBanksResult(banks, new ArrayList<>());
+    }
+    return storeAndMerge(banks, remoteBanksProvider.getRemoteBanksDetails(expiredUris));
+  }
+
+  @Override
+  public CompletableFuture<RemoteBanksResult> getRemoteBanksDetailsAsync(List<String> uris) {
+    Map<String, BankModel> banks = new LinkedHashMap<>();
+    List<String> expiredUris = readCache(uris, banks::put);
+    if (expiredUris.isEmpty()) {
+      return CompletableFuture.completedFuture(new RemoteBanksResult(banks, new ArrayList<>()));
+    }
+    return remoteBanksProvider.getRemoteBanksDetailsAsync(expiredUris)
+        .thenApply(result -> storeAndMerge(banks, result));
+  }
+
+  /**
+   * Cached banks are given to the listener straight away, expired banks as soon as the wrapped provider gets them.
+   * @param uris
+   * @param listener
+   * @return
+   */
+  @Override
+  public RemoteBanksResult getRemoteBanksDetails(List<String> uris, BiConsumer<String, BankModel> listener) {
+    Map<String, BankModel> banks = new LinkedHashMap<>();
+    List<String> expiredUris = readCache(uris, ((BiConsumer<String, BankModel>) banks::put).andThen(listener));
+    if (expiredUris.isEmpty()) {
+      return new RemoteBanksResult(banks, new ArrayList<>());
+    }
+    RemoteBanksResult result = remoteBanksProvider.getRemoteBanksDetails(expiredUris, (uri, bank) -> {
+      store(uri, bank);
+      listener.accept(uri, bank);
+    });
+    banks.putAll(result.getBanks());
+    return new RemoteBanksResult(banks, new ArrayList<>(result.getUnavailableUris()));
+  }
+
+  @Override
+  public Map<String, CircuitBreaker.Status> getCircuitBreakers() {
+    return remoteBanksProvider.getCircuitBreakers();
+  }
+
+  @Override
+  public Map<String, ConcurrencyLimiter.Status> getLimiters() {
+    return remoteBanksProvider.getLimiters();
+  }
+
+  @Override
+  public void writeMetrics(PrometheusWriter writer) {
+    long fresh = freshHits.sum();
+    long stale = staleHits.sum();
+    long missed = misses.sum();
+    long lookups = fresh + stale + missed;
+    writer.family("bankbridge_cache_lookups_total", PrometheusWriter.COUNTER, "Cache lookups of the remote banks")
+        .sample("bankbridge_cache_lookups_total", fresh, "result", "fresh")
+        .sample("bankbridge_cache_lookups_total", stale, "result", "stale")
+        .sample("bankbridge_cache_lookups_total", missed, "result", "miss")
+        .family("bankbridge_cache_hit_ratio", PrometheusWriter.GAUGE,
+            "Share of the lookups served from the cache (fresh or stale) since start")
+        .sample("bankbridge_cache_hit_ratio", lookups == 0 ? 0 : (fresh + stale) / (double) lookups);
+    remoteBanksProvider.writeMetrics(writer);
+  }
+
+  /**
+   * Stores the fetched banks and merges them with the banks served from the cache.
+   * @param cachedBanks
+   * @param result
+   * @return
+   */
+  private RemoteBanksResult storeAndMerge(Map<String, BankModel> cachedBanks, RemoteBanksResult result) {
+    result.getBanks().forEach(this::store);
+    cachedBanks.putAll(result.getBanks());
+    return new RemoteBanksResult(cachedBanks, new ArrayList<>(result.getUnavailableUris()));
+  }
+
+  /**
+   * Gives the fresh and stale banks to the consumer and starts the background refresh of the stale ones.
+   * @param uris
+   * @param cachedBanks receives the uri and the bank of every bank served from the cache
+   * @return uris which are expired or not cached yet
+   */
+  private List<String> readCache(List<String> uris, BiConsumer<String, BankModel> cachedBanks) {
+    long now = clock.getAsLong();
+    List<String> expiredUris = new ArrayList<>();
+    for (String uri : new LinkedHashSet<>(uris)) {
+      CachedBank cachedBank = cache.get(uri);
+      long age = cachedBank == null ? Long.MAX_VALUE : now - cachedBank.fetchedAt;
+      if (age <= freshMillis) {
+        freshHits.increment();
+        cachedBanks.accept(uri, cachedBank.bank);
+      } else if (age <= freshMillis + staleMillis) {
+        staleHits.increment();
+        cachedBanks.accept(uri, cachedBank.bank);
+        refreshInBackground(uri, cachedBank);
+      } else {
+        misses.increment();
+        expiredUris.add(uri);
+      }
+    }
+    return expiredUris;
+  }
+
+  /**
+   * Starts the refresh of the bank only if there is no refresh running for this entry already,
+   * so a stale bank is called only once however many requests are reading it.
+   * @param uri
+   * @param cachedBank
+   */
+  private void refreshInBackground(String uri, CachedBank cachedBank) {
+    if (!cachedBank.refreshing.compareAndSet(false, true)) {
+      return;
+    }
+    refreshExecutor.execute(() -> {
+      try {
+        BankModel bank = remoteBanksProvider.getRemoteBanksDetails(List.of(uri)).getBank(uri);
+        if (bank != null) {
+          store(uri, bank);
+        }
+      } catch (RuntimeException exception) {
+        log.error("Error in refreshing the Bank {} with error {}", uri, exception.getMessage());
+      } finally {
+        cachedBank.refreshing.set(false);
+      }
+    });
+  }
+
+  private void store(String uri, BankModel bank) {
+    cache.put(uri, new CachedBank(bank, clock.getAsLong()));
+  }
+
+  private static class CachedBank {
+
+    private final BankModel bank;
+    private final long fetchedAt;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private CachedBank(BankModel bank, long fetchedAt) {
+      this.bank = bank;
+      this.fetchedAt = fetchedAt;
+    }
+  }
+}
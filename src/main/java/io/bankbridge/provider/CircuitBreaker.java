@@ -0,0 +1,152 @@
+package io.bankbridge.provider;
+
+import io.bankbridge.config.RemoteBanksConfig;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker for one remote bank.
+ * CLOSED -> calls are allowed, result of the latest windowSize calls is kept for calculating failure rate
+ * OPEN -> failure rate reached the threshold, calls are skipped until the cool-down (openMillis) is over
+ * HALF_OPEN -> after cool-down only one trial call is allowed, success closes the circuit and failure opens it again
+ */
+public class CircuitBreaker {
+
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private final RemoteBanksConfig.CircuitBreaker config;
+  private final LongSupplier clock;
+  //Ring buffer of latest calls, true for failed call
+  private final boolean[] window;
+
+  private State state = State.CLOSED;
+  private int calls;
+  private int failures;
+  private int position;
+  private long openedAt;
+  private boolean trialInProgress;
+
+  public CircuitBreaker(RemoteBanksConfig.CircuitBreaker config, LongSupplier clock) {
+    this.config = config;
+    this.clock = clock;
+    this.window = new boolean[config.getWindowSize()];
+  }
+
+  /**
+   * Checks whether the call to the bank is allowed, moves the circuit to half-open when cool-down is over.
+   * @return false when call should be skipped
+   */
+  public synchronized boolean tryAcquire() {
+    if (state == State.OPEN && clock.getAsLong() - openedAt >= config.getOpenMillis()) {
+      state = State.HALF_OPEN;
+      trialInProgress = false;
+    }
+    switch (state) {
+      case CLOSED:
+        return true;
+      case HALF_OPEN:
+        if (trialInProgress) {
+          return false;
+        }
+        trialInProgress = true;
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  public synchronized void onSuccess() {
+    if (state == State.HALF_OPEN) {
+      reset();
+    } else if (state == State.CLOSED) {
+      record(false);
+    }
+  }
+
+  public synchronized void onFailure() {
+    if (state == State.HALF_OPEN) {
+      open();
+    } else if (state == State.CLOSED) {
+      record(true);
+      if (calls >= config.getMinimumCalls() && failureRate() >= config.getFailureRateThreshold()) {
+        open();
+      }
+    }
+  }
+
+  /**
+   * Call was allowed but never reached the bank, so it is not recorded. A half-open circuit allows the next trial.
+   */
+  public synchronized void onCancel() {
+    if (state == State.HALF_OPEN) {
+      trialInProgress = false;
+    }
+  }
+
+  public synchronized Status getStatus() {
+    return new Status(state, calls, failureRate());
+  }
+
+  private void record(boolean failed) {
+    if (calls == window.length) {
+      if (window[position]) {
+        failures--;
+      }
+    } else {
+      calls++;
+    }
+    window[position] = failed;
+    if (failed) {
+      failures++;
+    }
+    position = (position + 1) % window.length;
+  }
+
+  private int failureRate() {
+    return calls == 0 ? 0 : failures * 100 / calls;
+  }
+
+  private void open() {
+    state = State.OPEN;
+    openedAt = clock.getAsLong();
+    trialInProgress = false;
+  }
+
+  private void reset() {
+    state = State.CLOSED;
+    calls = 0;
+    failures = 0;
+    position = 0;
+    trialInProgress = false;
+  }
+
+  /**
+   * Current state of the circuit, exposed through the circuit breakers endpoint.
+   */
+  public static class Status {
+
+    private final State state;
+    private final int calls;
+    private final int failureRate;
+
+    public Status(State state, int calls, int failureRate) {
+      this.state = state;
+      this.calls = calls;
+      this.failureRate = failureRate;
+    }
+
+    public State getState() {
+      return state;
+    }
+
+    public int getCalls() {
+      return calls;
+    }
+
+    public int getFailureRate() {
+      return failureRate;
+    }
+  }
+}
@@ -0,0 +1,180 @@
+package io.bankbridge.provider;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Non blocking limiter for concurrent calls. acquire returns a future which completes when a slot is free,
+ * so waiting calls don't hold any thread. Every completed acquire must be followed by one release.
+ * A waiter completed by its caller (for example timed out or cancelled) leaves the queue straight away, so it
+ * neither counts toward maxWaiting nor takes a slot which is handed over.
+ * When maxWaiting calls are already waiting, acquire fails straight away with RejectedExecutionException,
+ * so excess load is shed instead of piling up. The limit can be changed at any time by setLimit.
+ */
+public class ConcurrencyLimiter {
+
+  private final int maxWaiting;
+  private final Deque<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+  private int limit;
+  private int inUse;
+  private long rejected;
+  private long increases;
+  private long decreases;
+
+  public ConcurrencyLimiter(int limit) {
+    this(limit, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @param limit maximum number of concurrent calls
+   * @param maxWaiting maximum number of calls waiting for a slot
+   */
+  public ConcurrencyLimiter(int limit, int maxWaiting) {
+    this.limit = limit;
+    this.maxWaiting = maxWaiting;
+  }
+
+  public CompletableFuture<Void> acquire() {
+    synchronized (this) {
+      if (inUse < limit) {
+        inUse++;
+        return CompletableFuture.completedFuture(null);
+      }
+      if (waiting.size() >= maxWaiting) {
+        rejected++;
+        return CompletableFuture.failedFuture(new RejectedExecutionException("Concurrency limit reached"));
+      }
+      CompletableFuture<Void> waiter = new CompletableFuture<>();
+      waiting.add(waiter);
+      waiter.whenComplete((free, exception) -> {
+        if (exception != null) {
+          removeWaiter(waiter);
+        }
+      });
+      return waiter;
+    }
+  }
+
+  private synchronized void removeWaiter(CompletableFuture<Void> waiter) {
+    waiting.remove(waiter);
+  }
+
+  /**
+   * Next waiter which is not completed yet, called holding the lock.
+   * @return
+   */
+  private CompletableFuture<Void> pollWaiter() {
+    CompletableFuture<Void> next = waiting.poll();
+    while (next != null && next.isDone()) {
+      next = waiting.poll();
+    }
+    return next;
+  }
+
+  public void release() {
+    while (true) {
+      CompletableFuture<Void> next;
+      synchronized (this) {
+        //After the limit is decreased slots are not handed over until the calls in use are below the new limit
+        next = inUse <= limit ? pollWaiter() : null;
+        if (next == null) {
+          inUse--;
+          return;
+        }
+      }
+      //Completing outside the lock because dependent stages of the waiter run in this thread
+      if (next.complete(null)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Changes the limit, waiting calls are started straight away when the limit is increased.
+   * @param newLimit
+   */
+  public void setLimit(int newLimit) {
+    List<CompletableFuture<Void>> started = new ArrayList<>();
+    synchronized (this) {
+      if (newLimit > limit) {
+        increases++;
+      } else if (newLimit < limit) {
+        decreases++;
+      }
+      limit = newLimit;
+      CompletableFuture<Void> next;
+      while (inUse < limit && (next = pollWaiter()) != null) {
+        started.add(next);
+        inUse++;
+      }
+    }
+    for (CompletableFuture<Void> waiter : started) {
+      if (!waiter.complete(null)) {
+        release();
+      }
+    }
+  }
+
+  public synchronized int getLimit() {
+    return limit;
+  }
+
+  public synchronized int getInUse() {
+    return inUse;
+  }
+
+  public synchronized int getWaiting() {
+    return waiting.size();
+  }
+
+  public synchronized Status getStatus() {
+    return new Status(limit, inUse, waiting.size(), rejected, increases, decreases);
+  }
+
+  public static class Status {
+
+    private final int limit;
+    private final int inUse;
+    private final int waiting;
+    private final long rejected;
+    private final long increases;
+    private final long decreases;
+
+    public Status(int limit, int inUse, int waiting, long rejected, long increases, long decreases) {
+      this.limit = limit;
+      this.inUse = inUse;
+      this.waiting = waiting;
+      this.rejected = rejected;
+      this.increases = increases;
+      this.decreases = decreases;
+    }
+
+    public int getLimit() {
+      return limit;
+    }
+
+    public int getInUse() {
+      return inUse;
+    }
+
+    public int getWaiting() {
+      return waiting;
+    }
+
+    public long getRejected() {
+      return rejected;
+    }
+
+    public long getIncreases() {
+      return increases;
+    }
+
+    public long getDecreases() {
+      return decreases;
+    }
+  }
+}
@@ -1,6 +1,13 @@
 package io.bankbridge.provider;
 
+import io.bankbridge.metrics.PrometheusWriter;
+import io.bankbridge.model.BankModel;
+import io.bankbridge.model.RemoteBanksResult;
+
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 
 public interface RemoteBanksProvider {
 
@@ -9,7 +16,55 @@ public interface RemoteBanksProvider {
    * Created this as a interface if we are following multiple implementations for getting remote bank details
    * I have done the implementation by using parallel call. If needed we can implement serial call mechanism also.
    * @param uris
+   * @return banks answered within the deadline keyed by uri along with the uris which are not available
+   */
+  RemoteBanksResult getRemoteBanksDetails(List<String> uris);
+
+  /**
+   * Same as getRemoteBanksDetails, additionally every bank is given to the listener as soon as it is available.
+   * Listener is called on the calling thread, one bank at a time in the order the banks arrive.
+   * By default the listener is called after all the banks are available.
+   * @param uris
+   * @param listener receives the uri and the bank of every available bank
+   * @return banks answered within the deadline keyed by uri along with the uris which are not available
+   */
+  default RemoteBanksResult getRemoteBanksDetails(List<String> uris, BiConsumer<String, BankModel> listener) {
+    RemoteBanksResult result = getRemoteBanksDetails(uris);
+    result.getBanks().forEach(listener);
+    return result;
+  }
+
+  /**
+   * Asynchronous variant of getRemoteBanksDetails, the future completes when all the banks answered or the deadline
+   * passed. By default the blocking call is run in the common pool, implementations should override it so no thread
+   * waits for the banks.
+   * @param uris
+   * @return banks answered within the deadline keyed by uri along with the uris which are not available
+   */
+  default CompletableFuture<RemoteBanksResult> getRemoteBanksDetailsAsync(List<String> uris) {
+    return CompletableFuture.supplyAsync(() -> getRemoteBanksDetails(uris));
+  }
+
+  /**
+   * Current state of the circuit breakers keyed by remote uri, empty when circuit breakers are not used.
    * @return
    */
-  Object getRemoteBanksDetails(List<String> uris);
+  default Map<String, CircuitBreaker.Status> getCircuitBreakers() {
+    return Map.of();
+  }
+
+  /**
+   * Current concurrency limits of the outbound calls keyed by remote uri, empty when the limiter is not used.
+   * @return
+   */
+  default Map<String, ConcurrencyLimiter.Status> getLimiters() {
+    return Map.of();
+  }
+
+  /**
+   * Writes the metrics of the provider, nothing by default.
+   * @param writer
+   */
+  default void writeMetrics(PrometheusWriter writer) {
+  }
 }
@@ -1,108 +1,450 @@
 package io.bankbridge.provider;
 
-import static java.util.stream.Collectors.toList;
-
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.bankbridge.config.RemoteBanksConfig;
 import io.bankbridge.errorhandler.BanksCustomException;
+import io.bankbridge.metrics.LatencyHistogram;
+import io.bankbridge.metrics.PrometheusWriter;
+import io.bankbridge.metrics.RemoteCallMetrics;
 import io.bankbridge.model.BankModel;
+import io.bankbridge.model.RemoteBanksResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.URI;
-import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
-import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 
 public class RemoteBanksProviderImpl implements RemoteBanksProvider{
 
   private static final Logger log = LoggerFactory.getLogger(RemoteBanksProviderImpl.class);
 
-  private static HttpClient httpClient = HttpClient.newHttpClient();
+  //ObjectReader is immutable and thread safe, so one reader is shared for decoding all bank responses
+  private static final ObjectReader BANK_READER = new ObjectMapper().readerFor(BankModel.class);
+
+  private final RemoteBanksTransport transport;
+
+  private final RequestHedger requestHedger;
+
+  private final RemoteBanksConfig.Timeouts timeouts;
+
+  private final RemoteBanksConfig.CircuitBreaker circuitBreakerConfig;
+
+  private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+  //Latest successful response of every bank, used for answering while the circuit is open
+  private final Map<String, BankModel> lastKnownGood = new ConcurrentHashMap<>();
+
+  //ETag and Last-Modified of the latest response of every bank along with its decoded model, used for conditional GET
+  private final Map<String, ConditionalResponse> conditionalResponses = new ConcurrentHashMap<>();
+
+  //Remote calls which are running now, concurrent requests for the same bank join the running call
+  private final Map<String, CompletableFuture<BankModel>> inFlight = new ConcurrentHashMap<>();
+
+  //Latency and outcome of the calls to every bank
+  private final Map<String, RemoteCallMetrics> callMetrics = new ConcurrentHashMap<>();
+
+  //Time taken by the whole fan-out of a request
+  private final LatencyHistogram fanOutLatency = new LatencyHistogram();
+
+  /**
+   * Creates the provider with the settings from banks-v2-config.json
+   * @throws IOException
+   */
+  public RemoteBanksProviderImpl() throws IOException {
+    this(RemoteBanksConfig.load());
+  }
+
+  public RemoteBanksProviderImpl(RemoteBanksConfig config) {
+    this.timeouts = config.getTimeouts();
+    this.circuitBreakerConfig = config.getCircuitBreaker();
+    this.transport = new RemoteBanksTransport(config);
+    this.requestHedger = new RequestHedger(config.getHedging());
+  }
 
   /**
    * Method will return the remote banks details by calling the remote bank endpoints.
+   * It waits at most deadlineMillis for the whole fan-out, when the deadline passes the banks answered so far
+   * are returned and the rest are reported as unavailable. So one hung bank can't hold the entire request.
+   * @param uris
+   * @return
+   */
+  public RemoteBanksResult getRemoteBanksDetails(List<String> uris) {
+    return getRemoteBanksDetails(uris, (uri, bank) -> { });
+  }
+
+  /**
+   * Completed banks are collected in a queue by the http threads and handed over to the listener on this thread,
+   * so the listener gets the fastest bank first and never has to be thread safe.
    * @param uris
+   * @param listener
    * @return
    */
-  public Object getRemoteBanksDetails(List<String> uris) {
-    List<URI> urlDetails = new ArrayList<>();
-    uris.forEach(uri -> urlDetails.add(URI.create(uri)));
-    List<HttpRequest> requests = urlDetails.stream()
-        .map(HttpRequest::newBuilder)
-        .map(reqBuilder -> reqBuilder.build())
-        .collect(toList());
-
-    CompletableFuture completableFuture = getCompletableFuture(requests);
+  @Override
+  public RemoteBanksResult getRemoteBanksDetails(List<String> uris, BiConsumer<String, BankModel> listener) {
+    long start = System.nanoTime();
+    Map<String, CompletableFuture<BankModel>> responses = startCalls(uris);
+    BlockingQueue<String> completedUris = new LinkedBlockingQueue<>();
+    responses.forEach((uri, future) -> future.whenComplete((bank, exception) -> completedUris.add(uri)));
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeouts.getDeadlineMillis());
+    Map<String, BankModel> completedBanks = new HashMap<>();
     try {
-      return completableFuture.get();
-    } catch (InterruptedException | ExecutionException exception) {
+      for (int pending = responses.size(); pending > 0; pending--) {
+        String uri = completedUris.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        if (uri == null) {
+          log.warn("Remote banks deadline of {} ms reached, returning the banks responded so far",
+              timeouts.getDeadlineMillis());
+          break;
+        }
+        BankModel bank = getNowOrNull(responses.get(uri));
+        if (bank != null) {
+          completedBanks.put(uri, bank);
+          listener.accept(uri, bank);
+        }
+      }
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
       log.error("Error in Parallel execution {}", exception.getMessage());
       throw new BanksCustomException(500, "Remote connection failed");
     }
+    fanOutLatency.record(System.nanoTime() - start);
+    return toResult(responses.keySet(), completedBanks::get);
+  }
+
+  /**
+   * Nothing waits for the banks here, the result is built by the thread which completes the last bank
+   * or by the deadline timer when the deadline passes first.
+   * @param uris
+   * @return
+   */
+  @Override
+  public CompletableFuture<RemoteBanksResult> getRemoteBanksDetailsAsync(List<String> uris) {
+    long start = System.nanoTime();
+    Map<String, CompletableFuture<BankModel>> responses = startCalls(uris);
+    return CompletableFuture.allOf(responses.values().toArray(new CompletableFuture<?>[responses.size()]))
+        .completeOnTimeout(null, timeouts.getDeadlineMillis(), TimeUnit.MILLISECONDS)
+        .handle((done, exception) -> {
+          fanOutLatency.record(System.nanoTime() - start);
+          if (responses.values().stream().anyMatch(response -> !response.isDone())) {
+            log.warn("Remote banks deadline of {} ms reached, returning the banks responded so far",
+                timeouts.getDeadlineMillis());
+          }
+          return toResult(responses.keySet(), uri -> getNowOrNull(responses.get(uri)));
+        });
+  }
+
+  /**
+   * Starts the call of every distinct uri.
+   * @param uris
+   * @return response of every distinct uri in the order of uris
+   */
+  private Map<String, CompletableFuture<BankModel>> startCalls(List<String> uris) {
+    //Same uri can be configured for more than one bank, so calling it only once
+    Map<String, CompletableFuture<BankModel>> responses = new LinkedHashMap<>();
+    uris.forEach(uri -> responses.computeIfAbsent(uri, this::joinOrCall));
+    return responses;
+  }
+
+  /**
+   * Banks which are failed or still running after the deadline are unavailable.
+   * @param uris
+   * @param completedBanks bank of the uri, null when it is not available
+   * @return
+   */
+  private static RemoteBanksResult toResult(Collection<String> uris, Function<String, BankModel> completedBanks) {
+    Map<String, BankModel> banks = new LinkedHashMap<>();
+    List<String> unavailableUris = new ArrayList<>();
+    for (String uri : uris) {
+      BankModel bank = completedBanks.apply(uri);
+      if (bank == null) {
+        unavailableUris.add(uri);
+      } else {
+        banks.put(uri, bank);
+      }
+    }
+    return new RemoteBanksResult(banks, unavailableUris);
+  }
+
+  private static BankModel getNowOrNull(CompletableFuture<BankModel> response) {
+    return response.isCompletedExceptionally() ? null : response.getNow(null);
+  }
 
+  /**
+   * Single flight of the remote calls. If there is already a call running for the bank the same future is returned,
+   * otherwise a new call is started and registered until it completes. So the number of calls to a bank depends on
+   * time, not on the number of concurrent requests.
+   * @param uri
+   * @return
+   */
+  private CompletableFuture<BankModel> joinOrCall(String uri) {
+    CompletableFuture<BankModel> running = inFlight.get(uri);
+    if (running != null) {
+      return running;
+    }
+    CompletableFuture<BankModel> call = new CompletableFuture<>();
+    running = inFlight.putIfAbsent(uri, call);
+    if (running != null) {
+      return running;
+    }
+    getCompletableFuture(uri).whenComplete((bank, exception) -> {
+      //Removing before completing, so callers coming after the completion start a new call
+      inFlight.remove(uri, call);
+      if (exception != null) {
+        call.completeExceptionally(exception);
+      } else {
+        call.complete(bank);
+      }
+    });
+    return call;
   }
 
   /**
    * Asynchronous call implementation steps.
-   * Method will return completable future after completing all remote banks calls by using
-   * CompletableFuture.allOf mechanism.
    * It uses Java HttpClient Async call mechanisms with exceptionally. And the calls will not stop the execution
    * if there is any error in particular bank also if we get any error from remote banks also.
-   * Currently it simply log the error and return null response for that bank. In final we are converting the response into
-   * BankDetail by using objectmapper.
-   * @param requests
+   * Request timeout of perBankMillis bounds the whole call including the body, counted from when the request is
+   * sent, so time spent waiting for a slot of the concurrency limiter is not taken as slowness of the bank.
+   * Currently it simply log the error and return null response for that bank.
+   * Body is read as bytes and decoded into BankModel as soon as the bank answers, so decoding of the banks
+   * happens in parallel and there is no intermediate String copy of the body.
+   * When the circuit of the bank is open the call is skipped and the last known good response is returned if
+   * configured, otherwise null.
+   * If the bank sent ETag or Last-Modified before, the request is sent as conditional GET and on 304 the previously
+   * decoded model is reused without downloading and parsing the body again.
+   * Slow banks are hedged by RequestHedger when hedging is enabled.
+   * Calls rejected by the concurrency limiter, queue full or no slot within perBankMillis, are shed by us, so they
+   * don't count as failures of the bank.
+   * @param uri
    * @return
    */
-  private CompletableFuture getCompletableFuture(List<HttpRequest> requests) {
-    //Create list of CompletableFuture by using HttpClient.sendAsync
-    List<CompletableFuture<String>> completableFutures =
-        requests.stream()
-            .map(request -> httpClient.sendAsync(request, BodyHandlers.ofString())
-                .thenApply(resp -> {
-                  var status = resp.statusCode();
-                  //If there are scenarios if we didn't get the success response from bank need to handle it separately,
-                  // because in last we are trying to map this into BankDetail, currently simply logging.
-                  if (status != 200) {
-                    log.error("Not able to fetch details successfully for Bank {} with response {}", resp.uri(),
-                        resp.body());
-                    return null;
-                  } else {
-                    return resp.body();
-                  }
-                }).exceptionally(ex -> {
-                  //When particular bank is down it will not stop the entire execution, Also if needed we can raise event or something to track this
-                  log.error("Error in Remote Connection with Bank {} with error {}", request.uri().toString(), ex.getMessage());
-                  return null;
-                })).collect(
-            Collectors.toList());
-    //Returns a new CompletableFuture that is completed when all of the given CompletableFutures complete.
-    CompletableFuture<Void> allFutures = CompletableFuture
-        .allOf(completableFutures.toArray(new CompletableFuture[completableFutures.size()]));
-
-    //CompletableFuture.join() to get List of Banks details
-    CompletableFuture<List<String>> allCompletableFuture = allFutures
-        .thenApply(future -> completableFutures.stream()
-            .map(completableFuture -> completableFuture.join())
-            .collect(Collectors.toList()));
-    //Map the response into BankModel class.
-    CompletableFuture completableFuture = allCompletableFuture.thenApply(banks -> banks.stream()
-        .filter(Objects::nonNull)
-        .map(bank -> {
-          try {
-            return new ObjectMapper().readValue(bank, BankModel.class);
-          } catch (IOException ioException) {
-            log.error("Error in Mapping the Banks response model {}", ioException.getMessage());
-            throw new BanksCustomException(500, "System not able to process the request");
+  private CompletableFuture<BankModel> getCompletableFuture(String uri) {
+    RemoteCallMetrics metrics = callMetrics.computeIfAbsent(uri, key -> new RemoteCallMetrics());
+    CircuitBreaker circuitBreaker = getCircuitBreaker(uri);
+    if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+      log.debug("Circuit is open for Bank {}, skipping the remote call", uri);
+      metrics.onShortCircuited();
+      return CompletableFuture.completedFuture(
+          circuitBreakerConfig.isServeLastKnownGood() ? lastKnownGood.get(uri) : null);
+    }
+    HttpRequest.Builder requestBuilder = HttpRequest.newBuilder(URI.create(uri))
+        .timeout(Duration.ofMillis(timeouts.getPerBankMillis()));
+    ConditionalResponse previous = conditionalResponses.get(uri);
+    if (previous != null) {
+      if (previous.etag != null) {
+        requestBuilder.header("If-None-Match", previous.etag);
+      }
+      if (previous.lastModified != null) {
+        requestBuilder.header("If-Modified-Since", previous.lastModified);
+      }
+    }
+    HttpRequest request = requestBuilder.build();
+    long start = System.nanoTime();
+    //Only an answer the bank can be read from wins the race, error answers are used when no attempt succeeded
+    return requestHedger.send(uri, () -> transport.send(request),
+        resp -> resp.statusCode() == 200 || resp.statusCode() == 304)
+        .thenApply(resp -> {
+          var status = resp.statusCode();
+          if (status == 304 && previous != null) {
+            metrics.onSuccess(System.nanoTime() - start);
+            onSuccess(circuitBreaker, uri, previous.bank);
+            return previous.bank;
+          }
+          //If there are scenarios if we didn't get the success response from bank need to handle it separately,
+          // because in last we are trying to map this into BankDetail, currently simply logging.
+          if (status != 200) {
+            log.error("Not able to fetch details successfully for Bank {} with response {}", resp.uri(),
+                new String(resp.body(), StandardCharsets.UTF_8));
+            metrics.onNon200(System.nanoTime() - start);
+            onFailure(circuitBreaker);
+            return null;
+          }
+          BankModel bank = toBankModel(uri, resp.body());
+          if (bank == null) {
+            metrics.onException(System.nanoTime() - start);
+            onFailure(circuitBreaker);
+          } else {
+            metrics.onSuccess(System.nanoTime() - start);
+            onSuccess(circuitBreaker, uri, bank);
+            rememberValidators(uri, resp.headers(), bank);
           }
-        }).filter(Objects::nonNull).collect(Collectors.toList()));
-    return completableFuture;
+          return bank;
+        }).exceptionally(ex -> {
+          Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+          if (cause instanceof RejectedExecutionException) {
+            log.warn("Call to Bank {} is shed by the concurrency limiter", uri);
+            metrics.onShed();
+            onShed(circuitBreaker);
+            return null;
+          }
+          //When particular bank is down it will not stop the entire execution, Also if needed we can raise event or something to track this
+          log.error("Error in Remote Connection with Bank {} with error {}", uri, ex.getMessage());
+          metrics.onException(System.nanoTime() - start);
+          onFailure(circuitBreaker);
+          return null;
+        });
+  }
+
+  @Override
+  public Map<String, CircuitBreaker.Status> getCircuitBreakers() {
+    Map<String, CircuitBreaker.Status> statuses = new TreeMap<>();
+    circuitBreakers.forEach((uri, circuitBreaker) -> statuses.put(uri, circuitBreaker.getStatus()));
+    return statuses;
+  }
+
+  @Override
+  public Map<String, ConcurrencyLimiter.Status> getLimiters() {
+    return transport.getLimiters();
+  }
+
+  @Override
+  public void writeMetrics(PrometheusWriter writer) {
+    Map<String, RemoteCallMetrics> banks = new TreeMap<>(callMetrics);
+    writer.family("bankbridge_remote_call_duration_seconds", PrometheusWriter.SUMMARY,
+        "Duration of the calls to the remote bank");
+    banks.forEach((uri, metrics) -> writer.summary("bankbridge_remote_call_duration_seconds", metrics.getLatency(),
+        "bank", uri));
+    writer.family("bankbridge_remote_calls_total", PrometheusWriter.COUNTER,
+        "Calls to the remote bank by result");
+    banks.forEach((uri, metrics) -> writer
+        .sample("bankbridge_remote_calls_total", metrics.getSuccess(), "bank", uri, "result", "success")
+        .sample("bankbridge_remote_calls_total", metrics.getNon200(), "bank", uri, "result", "non_200")
+        .sample("bankbridge_remote_calls_total", metrics.getException(), "bank", uri, "result", "exception")
+        .sample("bankbridge_remote_calls_total", metrics.getShortCircuited(), "bank", uri, "result",
+            "short_circuited")
+        .sample("bankbridge_remote_calls_total", metrics.getShed(), "bank", uri, "result", "shed"));
+    writer.family("bankbridge_fan_out_duration_seconds", PrometheusWriter.SUMMARY,
+        "Duration of calling all the remote banks for one request")
+        .summary("bankbridge_fan_out_duration_seconds", fanOutLatency);
+    writer.family("bankbridge_hedges_sent_total", PrometheusWriter.COUNTER, "Hedged requests sent")
+        .sample("bankbridge_hedges_sent_total", requestHedger.getHedgesSent())
+        .family("bankbridge_hedges_won_total", PrometheusWriter.COUNTER, "Hedged requests answered first")
+        .sample("bankbridge_hedges_won_total", requestHedger.getHedgesWon());
+    writeCircuitBreakerMetrics(writer);
+    writeLimiterMetrics(writer);
+  }
+
+  private void writeCircuitBreakerMetrics(PrometheusWriter writer) {
+    Map<String, CircuitBreaker.Status> statuses = getCircuitBreakers();
+    if (statuses.isEmpty()) {
+      return;
+    }
+    writer.family("bankbridge_circuit_breaker_state", PrometheusWriter.GAUGE,
+        "State of the circuit breaker of the remote bank, 1 for the current state");
+    statuses.forEach((uri, status) -> {
+      for (CircuitBreaker.State state : CircuitBreaker.State.values()) {
+        writer.sample("bankbridge_circuit_breaker_state", status.getState() == state ? 1 : 0,
+            "bank", uri, "state", state.name());
+      }
+    });
+  }
+
+  private void writeLimiterMetrics(PrometheusWriter writer) {
+    Map<String, ConcurrencyLimiter.Status> statuses = getLimiters();
+    if (statuses.isEmpty()) {
+      return;
+    }
+    writer.family("bankbridge_limiter_limit", PrometheusWriter.GAUGE, "Current concurrency limit");
+    statuses.forEach((key, status) -> writer.sample("bankbridge_limiter_limit", status.getLimit(), "limiter", key));
+    writer.family("bankbridge_limiter_in_use", PrometheusWriter.GAUGE, "Calls running within the limit");
+    statuses.forEach((key, status) -> writer.sample("bankbridge_limiter_in_use", status.getInUse(), "limiter", key));
+    writer.family("bankbridge_limiter_waiting", PrometheusWriter.GAUGE, "Calls waiting for a slot");
+    statuses.forEach((key, status) -> writer.sample("bankbridge_limiter_waiting", status.getWaiting(), "limiter", key));
+    writer.family("bankbridge_limiter_rejected_total", PrometheusWriter.COUNTER, "Calls rejected by the limiter");
+    statuses.forEach((key, status) -> writer.sample("bankbridge_limiter_rejected_total", status.getRejected(),
+        "limiter", key));
+    writer.family("bankbridge_limiter_changes_total", PrometheusWriter.COUNTER, "Changes of the concurrency limit");
+    statuses.forEach((key, status) -> writer
+        .sample("bankbridge_limiter_changes_total", status.getIncreases(), "limiter", key, "direction", "increase")
+        .sample("bankbridge_limiter_changes_total", status.getDecreases(), "limiter", key, "direction", "decrease"));
+  }
+
+  private CircuitBreaker getCircuitBreaker(String uri) {
+    if (!circuitBreakerConfig.isEnabled()) {
+      return null;
+    }
+    return circuitBreakers.computeIfAbsent(uri,
+        key -> new CircuitBreaker(circuitBreakerConfig, System::currentTimeMillis));
+  }
+
+  private void onSuccess(CircuitBreaker circuitBreaker, String uri, BankModel bank) {
+    if (circuitBreaker != null) {
+      circuitBreaker.onSuccess();
+      lastKnownGood.put(uri, bank);
+    }
+  }
+
+  private void rememberValidators(String uri, HttpHeaders headers, BankModel bank) {
+    String etag = headers.firstValue("ETag").orElse(null);
+    String lastModified = headers.firstValue("Last-Modified").orElse(null);
+    if (etag != null || lastModified != null) {
+      conditionalResponses.put(uri, new ConditionalResponse(etag, lastModified, bank));
+    } else {
+      conditionalResponses.remove(uri);
+    }
+  }
+
+  private void onFailure(CircuitBreaker circuitBreaker) {
+    if (circuitBreaker != null) {
+      circuitBreaker.onFailure();
+    }
+  }
+
+  private void onShed(CircuitBreaker circuitBreaker) {
+    if (circuitBreaker != null) {
+      circuitBreaker.onCancel();
+    }
+  }
+
+  /**
+   * Map the response into BankModel class. A bank with invalid response is handled like a failed bank,
+   * so it doesn't fail the response of the other banks.
+   * @param uri
+   * @param body
+   * @return
+   */
+  private static BankModel toBankModel(String uri, byte[] body) {
+    try {
+      return BANK_READER.readValue(body);
+    } catch (IOException ioException) {
+      log.error("Error in Mapping the Banks response model of Bank {} with error {}", uri, ioException.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Validators of the latest successful response of a bank and the model decoded from it.
+   */
+  private static class ConditionalResponse {
+
+    private final String etag;
+    private final String lastModified;
+    private final BankModel bank;
+
+    private ConditionalResponse(String etag, String lastModified, BankModel bank) {
+      this.etag = etag;
+      this.lastModified = lastModified;
+      this.bank = bank;
+    }
   }
 }
@@ -0,0 +1,142 @@
+package io.bankbridge.provider;
+
+import io.bankbridge.config.RemoteBanksConfig;
+import io.bankbridge.model.BankModel;
+import io.bankbridge.model.RemoteBanksResult;
+import io.bankbridge.response.BankDetails;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Polls every remote bank on its own interval and publishes the result as RemoteBanksSnapshot.
+ * Requests only read the latest snapshot (single volatile read), so fetching, mapping and sorting is not done
+ * in the request path anymore. When a poll fails the last known result of that bank is kept, a new snapshot is only
+ * published when a bank has changed.
+ * Configured banks can be replaced at runtime by setBanks, requests keep reading the previous snapshot until the
+ * banks which are new are loaded.
+ */
+public class RemoteBanksRefresher {
+
+  private static final Logger log = LoggerFactory.getLogger(RemoteBanksRefresher.class);
+
+  private final RemoteBanksProvider remoteBanksProvider;
+  private volatile Map<String, String> banks;
+  private final Function<BankModel, BankDetails> mapper;
+  private final RemoteBanksConfig.Refresher config;
+  private final ScheduledExecutorService scheduler;
+  private final Map<String, BankModel> results = new ConcurrentHashMap<>();
+  //Scheduled polling by bank uri
+  private final Map<String, ScheduledFuture<?>> polls = new ConcurrentHashMap<>();
+
+  private volatile RemoteBanksSnapshot snapshot = RemoteBanksSnapshot.EMPTY;
+
+  /**
+   * @param remoteBanksProvider provider used for calling the banks
+   * @param banks configured bank name -> remote uri
+   * @param mapper maps the remote model into response model
+   * @param config refresher configuration
+   */
+  public RemoteBanksRefresher(RemoteBanksProvider remoteBanksProvider, Map<String, String> banks,
+      Function<BankModel, BankDetails> mapper, RemoteBanksConfig.Refresher config) {
+    this.remoteBanksProvider = remoteBanksProvider;
+    this.banks = Collections.unmodifiableMap(new LinkedHashMap<>(banks));
+    this.mapper = mapper;
+    this.config = config;
+    this.scheduler = Executors.newScheduledThreadPool(config.getThreads(), runnable -> {
+      Thread thread = new Thread(runnable, "remote-banks-refresher");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Loads all banks once before returning, so the first requests are not served from an empty snapshot,
+   * then schedules the polling of every bank.
+   */
+  public void start() {
+    List<String> uris = new ArrayList<>(new LinkedHashSet<>(banks.values()));
+    RemoteBanksResult initialResult = remoteBanksProvider.getRemoteBanksDetails(uris);
+    results.putAll(initialResult.getBanks());
+    publish();
+    uris.forEach(this::schedule);
+  }
+
+  /**
+   * Replaces the configured banks. Banks which are new are loaded before the new snapshot is published,
+   * polling of the removed banks is stopped and their results are dropped.
+   * @param newBanks configured bank name -> remote uri
+   * @return version of the published snapshot
+   */
+  public synchronized long setBanks(Map<String, String> newBanks) {
+    Map<String, String> previousBanks = banks;
+    banks = Collections.unmodifiableMap(new LinkedHashMap<>(newBanks));
+    List<String> addedUris = new ArrayList<>(new LinkedHashSet<>(banks.values()));
+    addedUris.removeAll(previousBanks.values());
+    for (String uri : new LinkedHashSet<>(previousBanks.values())) {
+      if (!banks.containsValue(uri)) {
+        ScheduledFuture<?> poll = polls.remove(uri);
+        if (poll != null) {
+          poll.cancel(false);
+        }
+        results.remove(uri);
+      }
+    }
+    if (!addedUris.isEmpty()) {
+      results.putAll(remoteBanksProvider.getRemoteBanksDetails(addedUris).getBanks());
+      addedUris.forEach(this::schedule);
+    }
+    publish();
+    return snapshot.getVersion();
+  }
+
+  public void stop() {
+    scheduler.shutdownNow();
+  }
+
+  /**
+   * Latest published snapshot.
+   * @return
+   */
+  public RemoteBanksSnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  void refresh(String uri) {
+    try {
+      BankModel bank = remoteBanksProvider.getRemoteBanksDetails(List.of(uri)).getBank(uri);
+      //Bank may be removed by setBanks while it was polled
+      if (bank != null && banks.containsValue(uri)) {
+        BankModel previous = results.put(uri, bank);
+        //Unchanged bank keeps the snapshot, so the cached responses and the cursors of its version stay valid
+        if (!bank.equals(previous)) {
+          publish();
+        }
+      }
+    } catch (RuntimeException exception) {
+      //Exception should not stop the scheduled polling of this bank
+      log.error("Error in polling the Bank {} with error {}", uri, exception.getMessage());
+    }
+  }
+
+  private void schedule(String uri) {
+    long interval = config.getIntervalMillis(uri);
+    polls.put(uri, scheduler.scheduleWithFixedDelay(() -> refresh(uri), interval, interval, TimeUnit.MILLISECONDS));
+  }
+
+  private synchronized void publish() {
+    snapshot = RemoteBanksSnapshot.build(snapshot.getVersion() + 1, banks, results, mapper);
+  }
+}
@@ -0,0 +1,70 @@
+package io.bankbridge.provider;
+
+import io.bankbridge.index.BankIndex;
+import io.bankbridge.model.BankModel;
+import io.bankbridge.response.BankDetails;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Immutable view of the remote banks, already mapped into BankDetails, sorted by id and indexed for the filters.
+ * Handler only needs to select and paginate it.
+ */
+public class RemoteBanksSnapshot {
+
+  public static final RemoteBanksSnapshot EMPTY = new RemoteBanksSnapshot(0, BankIndex.build(List.of()), List.of());
+
+  private final long version;
+  private final BankIndex index;
+  private final List<String> unavailableBanks;
+
+  private RemoteBanksSnapshot(long version, BankIndex index, List<String> unavailableBanks) {
+    this.version = version;
+    this.index = index;
+    this.unavailableBanks = unavailableBanks;
+  }
+
+  /**
+   * Builds the snapshot for the configured banks from the remote results.
+   * Banks without result are added as unavailable by name.
+   * @param version version of the snapshot
+   * @param banks configured bank name -> remote uri
+   * @param results remote uri -> bank result
+   * @param mapper maps the remote model into response model
+   * @return
+   */
+  public static RemoteBanksSnapshot build(long version, Map<String, String> banks, Map<String, BankModel> results,
+      Function<BankModel, BankDetails> mapper) {
+    //Sorting the response from banks because call happening in parallel so can't ensure the order
+    BankIndex.Builder bankDetails = BankIndex.builder().orderById();
+    List<String> unavailableBanks = new ArrayList<>();
+    for (Map.Entry<String, String> bank : banks.entrySet()) {
+      BankModel bankModel = results.get(bank.getValue());
+      if (bankModel == null) {
+        unavailableBanks.add(bank.getKey());
+      } else {
+        bankDetails.add(mapper.apply(bankModel));
+      }
+    }
+    return new RemoteBanksSnapshot(version, bankDetails.build(), List.copyOf(unavailableBanks));
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public List<BankDetails> getBanks() {
+    return index.getBanks();
+  }
+
+  public BankIndex getIndex() {
+    return index;
+  }
+
+  public List<String> getUnavailableBanks() {
+    return unavailableBanks;
+  }
+}
@@ -0,0 +1,221 @@
+package io.bankbridge.provider;
+
+import io.bankbridge.concurrent.VirtualThreads;
+import io.bankbridge.config.RemoteBanksConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * HTTP transport for the remote banks built from the transport profile in banks-v2-config.json.
+ * Holds the HttpClient with its executor and limits the number of concurrent calls for every host.
+ * When the limiter is enabled every bank also gets an adaptive (AIMD) concurrency limit and all the banks together
+ * share the global limit, calls above the limits wait in a bounded queue and are rejected when the queue is full.
+ */
+public class RemoteBanksTransport {
+
+  private static final Logger log = LoggerFactory.getLogger(RemoteBanksTransport.class);
+
+  /**
+   * Key of the global limiter in getLimiters, the other keys are the bank uris
+   */
+  public static final String GLOBAL_LIMITER = "global";
+
+  private final HttpClient httpClient;
+  private final int maxConnectionsPerHost;
+  private final Map<String, ConcurrencyLimiter> hostLimiters = new ConcurrentHashMap<>();
+  private final RemoteBanksConfig.Limiter limiterConfig;
+  private final Map<String, BankLimiter> bankLimiters = new ConcurrentHashMap<>();
+  private final ConcurrencyLimiter globalLimiter;
+
+  public RemoteBanksTransport(RemoteBanksConfig config) {
+    RemoteBanksConfig.Transport transport = config.getTransport();
+    HttpClient.Builder builder = HttpClient.newBuilder()
+        .version(HttpClient.Version.valueOf(transport.getHttpVersion()))
+        .connectTimeout(Duration.ofMillis(config.getTimeouts().getConnectMillis()));
+    ExecutorService executor = createExecutor(transport);
+    if (executor != null) {
+      builder.executor(executor);
+    }
+    this.httpClient = builder.build();
+    this.maxConnectionsPerHost = transport.getMaxConnectionsPerHost();
+    this.limiterConfig = config.getLimiter();
+    this.globalLimiter = limiterConfig.isEnabled()
+        ? new ConcurrencyLimiter(limiterConfig.getGlobalLimit(), limiterConfig.getMaxQueue()) : null;
+  }
+
+  /**
+   * Sends the request once there is a free slot in the limiter of the bank, of the host and in the global limiter.
+   * Call fails with RejectedExecutionException when the queue of one of the limiters is full or no slot got free
+   * within the request timeout, and with TimeoutException when the bank didn't answer within the request timeout
+   * after the request was sent.
+   * @param request
+   * @return
+   */
+  public CompletableFuture<HttpResponse<byte[]>> send(HttpRequest request) {
+    BankLimiter bankLimiter = limiterConfig.isEnabled()
+        ? bankLimiters.computeIfAbsent(request.uri().toString(), key -> new BankLimiter(limiterConfig)) : null;
+    ConcurrencyLimiter hostLimiter = maxConnectionsPerHost <= 0 ? null : hostLimiters
+        .computeIfAbsent(hostKey(request.uri()), key -> new ConcurrencyLimiter(maxConnectionsPerHost));
+    return withSlot(bankLimiter == null ? null : bankLimiter.limiter, request,
+        () -> withSlot(hostLimiter, request,
+            () -> withSlot(globalLimiter, request,
+                () -> sendMeasured(request, bankLimiter))));
+  }
+
+  /**
+   * Current limits of every bank and the global limit, empty when the limiter is disabled.
+   * @return
+   */
+  public Map<String, ConcurrencyLimiter.Status> getLimiters() {
+    Map<String, ConcurrencyLimiter.Status> limiters = new TreeMap<>();
+    bankLimiters.forEach((uri, bankLimiter) -> limiters.put(uri, bankLimiter.limiter.getStatus()));
+    if (globalLimiter != null) {
+      limiters.put(GLOBAL_LIMITER, globalLimiter.getStatus());
+    }
+    return limiters;
+  }
+
+  /**
+   * Runs the call once there is a free slot in the limiter and releases the slot when the call is completed.
+   * Waiting for the slot is bounded by the request timeout, timed out waiter never runs the call and fails with
+   * RejectedExecutionException, as nothing was sent to the bank.
+   * Cancelling the returned future gives up the slot or cancels the running call.
+   * @param limiter limiter, null for running the call straight away
+   * @param request
+   * @param call
+   * @return
+   */
+  private static CompletableFuture<HttpResponse<byte[]>> withSlot(ConcurrencyLimiter limiter, HttpRequest request,
+      Supplier<CompletableFuture<HttpResponse<byte[]>>> call) {
+    if (limiter == null) {
+      return call.get();
+    }
+    CompletableFuture<Void> slot = limiter.acquire();
+    request.timeout().ifPresent(timeout -> slot.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS));
+    AtomicReference<CompletableFuture<HttpResponse<byte[]>>> running = new AtomicReference<>();
+    CompletableFuture<HttpResponse<byte[]>> slotted = slot.handle((free, exception) -> exception).thenCompose(failed -> {
+      if (failed != null) {
+        return CompletableFuture.failedFuture(failed instanceof TimeoutException
+            ? new RejectedExecutionException("No free slot within the request timeout") : failed);
+      }
+      CompletableFuture<HttpResponse<byte[]>> response;
+      try {
+        response = call.get();
+      } catch (RuntimeException exception) {
+        limiter.release();
+        throw exception;
+      }
+      running.set(response);
+      return response.whenComplete((result, exception) -> limiter.release());
+    });
+    return cancelling(slotted, () -> {
+      slot.cancel(false);
+      CompletableFuture<HttpResponse<byte[]>> response = running.get();
+      if (response != null) {
+        response.cancel(true);
+      }
+    });
+  }
+
+  /**
+   * Runs the given cancellation when the future is cancelled, for example when it lost a hedged race.
+   * Cancelling a dependent stage doesn't reach the stage it depends on, so the waiting slot and the running
+   * call are cancelled by this, which releases the slot.
+   */
+  private static <T> CompletableFuture<T> cancelling(CompletableFuture<T> future, Runnable cancellation) {
+    future.whenComplete((result, exception) -> {
+      if (future.isCancelled()) {
+        cancellation.run();
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Sends the request and feeds its RTT into the adaptive limit of the bank.
+   * Request timeout of the HttpClient covers waiting for the response headers, the whole call including the body is
+   * bounded by the same timeout from here, so it starts only once the request is sent.
+   * 429 and 503 responses are the bank asking us to slow down, so they are handled like failed calls.
+   * @param request
+   * @param bankLimiter
+   * @return
+   */
+  private CompletableFuture<HttpResponse<byte[]>> sendMeasured(HttpRequest request, BankLimiter bankLimiter) {
+    long start = System.nanoTime();
+    CompletableFuture<HttpResponse<byte[]>> response = httpClient.sendAsync(request, BodyHandlers.ofByteArray());
+    request.timeout().ifPresent(timeout -> response.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS));
+    if (bankLimiter == null) {
+      return response;
+    }
+    return cancelling(response.whenComplete((result, exception) -> {
+      //Cancelled call says nothing about the bank
+      if (response.isCancelled()) {
+        return;
+      }
+      boolean dropped = exception != null || result.statusCode() == 429 || result.statusCode() == 503;
+      ConcurrencyLimiter limiter = bankLimiter.limiter;
+      int oldLimit = limiter.getLimit();
+      int newLimit = bankLimiter.limit.onSample(System.nanoTime() - start, limiter.getInUse(), dropped);
+      if (newLimit != oldLimit) {
+        log.debug("Concurrency limit of Bank {} changed from {} to {}", request.uri(), oldLimit, newLimit);
+        limiter.setLimit(newLimit);
+      }
+    }), () -> response.cancel(true));
+  }
+
+  private static String hostKey(URI uri) {
+    return uri.getHost() + ":" + uri.getPort();
+  }
+
+  /**
+   * Executor for the HttpClient, null means the HttpClient default executor.
+   * @param transport
+   * @return
+   */
+  private static ExecutorService createExecutor(RemoteBanksConfig.Transport transport) {
+    switch (transport.getExecutor()) {
+      case RemoteBanksConfig.Transport.EXECUTOR_FIXED:
+        return Executors.newFixedThreadPool(transport.getExecutorThreads(), runnable -> {
+          Thread thread = new Thread(runnable, "remote-banks-http");
+          thread.setDaemon(true);
+          return thread;
+        });
+      case RemoteBanksConfig.Transport.EXECUTOR_VIRTUAL:
+        return VirtualThreads.newExecutor();
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Limiter of one bank along with the AIMD limit which drives it.
+   */
+  private static class BankLimiter {
+
+    private final AimdLimit limit;
+    private final ConcurrencyLimiter limiter;
+
+    private BankLimiter(RemoteBanksConfig.Limiter config) {
+      this.limit = new AimdLimit(config);
+      this.limiter = new ConcurrencyLimiter(limit.getLimit(), config.getMaxQueue());
+    }
+  }
+}
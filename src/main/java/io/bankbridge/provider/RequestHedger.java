@@ -0,0 +1,220 @@
+package io.bankbridge.provider;
+
+import io.bankbridge.config.RemoteBanksConfig;
+import io.bankbridge.metrics.LatencyHistogram;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Sends a second identical request when the bank didn't answer within the hedge delay, first successful answer wins
+ * and the other attempt is cancelled. Hedge delay is the configured delay or the p95 latency of the successful
+ * answers of the bank in the last one to two windows (windowSeconds), so it follows the bank when it speeds up or
+ * slows down. Extra load is limited by a budget, every request adds budgetPercent/100 hedge and every hedge takes
+ * one, up to maxBurst hedges can be saved.
+ */
+public class RequestHedger {
+
+  //Budget is kept in hundredths of a hedge so percentages can be added without rounding
+  private static final long ONE_HEDGE = 100;
+  //Observed p95 is recalculated from the histograms at most once in this period
+  private static final long P95_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final RemoteBanksConfig.Hedging config;
+  private final Map<String, BankLatency> latencies = new ConcurrentHashMap<>();
+  private final AtomicLong budget;
+  private final LongAdder hedgesSent = new LongAdder();
+  private final LongAdder hedgesWon = new LongAdder();
+
+  public RequestHedger(RemoteBanksConfig.Hedging config) {
+    this.config = config;
+    this.budget = new AtomicLong(config.getMaxBurst() * ONE_HEDGE);
+  }
+
+  /**
+   * Sends the request by using the given attempt and hedges it if needed.
+   * @param uri bank uri, latencies are tracked per bank
+   * @param attempt sends one request to the bank
+   * @param successful tells the answers which can win, the others are used only when no attempt succeeds
+   * @param <T> response type
+   * @return
+   */
+  public <T> CompletableFuture<T> send(String uri, Supplier<CompletableFuture<T>> attempt,
+      Predicate<T> successful) {
+    BankLatency latency = latencies.computeIfAbsent(uri, key -> new BankLatency(config.getWindowSeconds()));
+    if (!config.isEnabled()) {
+      return timed(attempt, successful, latency);
+    }
+    addBudget();
+    long hedgeDelay = hedgeDelayMillis(latency);
+    if (hedgeDelay < 0) {
+      return timed(attempt, successful, latency);
+    }
+    Race<T> race = new Race<>(successful);
+    race.add(timed(attempt, successful, latency), false);
+    CompletableFuture.delayedExecutor(hedgeDelay, TimeUnit.MILLISECONDS).execute(() -> {
+      if (!race.result.isDone() && takeBudget()) {
+        hedgesSent.increment();
+        race.add(timed(attempt, successful, latency), true);
+      }
+    });
+    return race.result;
+  }
+
+  public long getHedgesSent() {
+    return hedgesSent.sum();
+  }
+
+  public long getHedgesWon() {
+    return hedgesWon.sum();
+  }
+
+  private static <T> CompletableFuture<T> timed(Supplier<CompletableFuture<T>> attempt, Predicate<T> successful,
+      BankLatency latency) {
+    long start = System.nanoTime();
+    CompletableFuture<T> future = attempt.get();
+    future.whenComplete((response, exception) -> {
+      if (exception == null && successful.test(response)) {
+        latency.record(System.nanoTime() - start);
+      }
+    });
+    return future;
+  }
+
+  /**
+   * @return hedge delay in milliseconds, -1 when there are not enough recent samples for the observed p95
+   */
+  private long hedgeDelayMillis(BankLatency latency) {
+    if (config.getDelayMillis() > 0) {
+      return Math.max(config.getDelayMillis(), config.getMinDelayMillis());
+    }
+    if (latency.getCount() < config.getMinSamples()) {
+      return -1;
+    }
+    return Math.max(latency.p95Millis(), config.getMinDelayMillis());
+  }
+
+  private void addBudget() {
+    long max = config.getMaxBurst() * ONE_HEDGE;
+    budget.getAndUpdate(current -> Math.min(max, current + config.getBudgetPercent()));
+  }
+
+  private boolean takeBudget() {
+    long current;
+    do {
+      current = budget.get();
+      if (current < ONE_HEDGE) {
+        return false;
+      }
+    } while (!budget.compareAndSet(current, current - ONE_HEDGE));
+    return true;
+  }
+
+  /**
+   * Attempts of one request. First successful answer completes the result and the other attempts are cancelled.
+   * When no attempt succeeds the result is the last answer, or the failure when none of them answered.
+   */
+  private class Race<T> {
+
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+    private final Predicate<T> successful;
+    private final List<CompletableFuture<T>> attempts = new CopyOnWriteArrayList<>();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicReference<T> lastAnswer = new AtomicReference<>();
+
+    private Race(Predicate<T> successful) {
+      this.successful = successful;
+      result.whenComplete((response, exception) -> attempts.forEach(attempt -> attempt.cancel(true)));
+    }
+
+    private void add(CompletableFuture<T> attempt, boolean hedge) {
+      outstanding.incrementAndGet();
+      attempts.add(attempt);
+      //Result completed meanwhile, so the attempt was missed by the cancellation
+      if (result.isDone()) {
+        attempt.cancel(true);
+        return;
+      }
+      attempt.whenComplete((response, exception) -> {
+        if (exception == null && successful.test(response)) {
+          if (result.complete(response) && hedge) {
+            hedgesWon.increment();
+          }
+          return;
+        }
+        if (exception == null) {
+          lastAnswer.set(response);
+        }
+        if (outstanding.decrementAndGet() == 0) {
+          T answer = lastAnswer.get();
+          if (answer != null) {
+            result.complete(answer);
+          } else {
+            result.completeExceptionally(exception);
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Latencies of the successful answers of one bank in the current and the previous window, with their p95 cached.
+   * Windows are rotated by the threads using them, when no answer came for two windows both are empty.
+   */
+  private static class BankLatency {
+
+    private final long windowNanos;
+    private volatile LatencyHistogram current = new LatencyHistogram();
+    private volatile LatencyHistogram previous = new LatencyHistogram();
+    private volatile long windowStart = System.nanoTime();
+    private volatile long p95Millis;
+    private volatile long refreshedAt = System.nanoTime() - P95_REFRESH_NANOS;
+
+    private BankLatency(long windowSeconds) {
+      this.windowNanos = TimeUnit.SECONDS.toNanos(windowSeconds);
+    }
+
+    private void record(long durationNanos) {
+      rotate();
+      current.record(durationNanos);
+    }
+
+    private long getCount() {
+      rotate();
+      return current.getCount() + previous.getCount();
+    }
+
+    private long p95Millis() {
+      long now = System.nanoTime();
+      if (now - refreshedAt >= P95_REFRESH_NANOS) {
+        p95Millis = TimeUnit.MICROSECONDS.toMillis(LatencyHistogram.getValueAtQuantile(0.95, previous, current));
+        refreshedAt = now;
+      }
+      return p95Millis;
+    }
+
+    private void rotate() {
+      if (System.nanoTime() - windowStart < windowNanos) {
+        return;
+      }
+      synchronized (this) {
+        long elapsed = System.nanoTime() - windowStart;
+        if (elapsed >= windowNanos) {
+          previous = elapsed >= 2 * windowNanos ? new LatencyHistogram() : current;
+          current = new LatencyHistogram();
+          windowStart = System.nanoTime();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package io.bankbridge.response;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of bank details along with the metadata which is sent back as response headers.
+ * Only banks are rendered as the response body so the API response stays the same.
+ */
+public class BanksPage {
+
+  private final List<BankDetails> banks;
+  private final List<String> unavailableBanks;
+  private final String nextCursor;
+
+  public BanksPage(List<BankDetails> banks, List<String> unavailableBanks) {
+    this(banks, unavailableBanks, null);
+  }
+
+  /**
+   * @param banks
+   * @param unavailableBanks
+   * @param nextCursor cursor of the next page, null when this is the last one
+   */
+  public BanksPage(List<BankDetails> banks, List<String> unavailableBanks, String nextCursor) {
+    this.banks = banks;
+    this.unavailableBanks = Collections.unmodifiableList(unavailableBanks);
+    this.nextCursor = nextCursor;
+  }
+
+  public List<BankDetails> getBanks() {
+    return banks;
+  }
+
+  /**
+   * Names of the banks which are not part of the response because they failed or didn't answer in time.
+   * @return
+   */
+  public List<String> getUnavailableBanks() {
+    return unavailableBanks;
+  }
+
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  public boolean isPartial() {
+    return !unavailableBanks.isEmpty();
+  }
+}
@@ -19,4 +19,14 @@ public class BanksResponseTransformer  {
       return mapper.writeValueAsString(model);
     }
 
+  /**
+   * Same as render but as UTF-8 bytes, used while writing the response directly to the output stream.
+   * @param model
+   * @return
+   * @throws JsonProcessingException
+   */
+    public static byte[] renderAsBytes(Object model) throws JsonProcessingException {
+      return mapper.writeValueAsBytes(model);
+    }
+
 }
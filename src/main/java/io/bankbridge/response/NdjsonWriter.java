@@ -0,0 +1,35 @@
+package io.bankbridge.response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes newline delimited JSON (one JSON document per line) and flushes every line,
+ * so the client gets each element as soon as it is written.
+ */
+public class NdjsonWriter {
+
+  public static final String CONTENT_TYPE = "application/x-ndjson";
+
+  private final OutputStream outputStream;
+
+  public NdjsonWriter(OutputStream outputStream) {
+    this.outputStream = outputStream;
+  }
+
+  /**
+   * Writes the model as one line.
+   * @param model
+   * @throws UncheckedIOException when the client is gone
+   */
+  public void write(Object model) {
+    try {
+      outputStream.write(BanksResponseTransformer.renderAsBytes(model));
+      outputStream.write('\n');
+      outputStream.flush();
+    } catch (IOException ioException) {
+      throw new UncheckedIOException(ioException);
+    }
+  }
+}
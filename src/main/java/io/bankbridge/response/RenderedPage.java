@@ -0,0 +1,52 @@
+package io.bankbridge.response;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Page of bank details already rendered into the response body, so it can be cached and written as it is.
+ */
+public class RenderedPage {
+
+  private final byte[] body;
+  private final List<String> unavailableBanks;
+  private final String nextCursor;
+
+  public RenderedPage(byte[] body, List<String> unavailableBanks, String nextCursor) {
+    this.body = body;
+    this.unavailableBanks = unavailableBanks;
+    this.nextCursor = nextCursor;
+  }
+
+  /**
+   * Renders the banks of the page as the response body.
+   * @param banksPage
+   * @return
+   */
+  public static RenderedPage render(BanksPage banksPage) {
+    try {
+      return new RenderedPage(BanksResponseTransformer.renderAsBytes(banksPage.getBanks()),
+          banksPage.getUnavailableBanks(), banksPage.getNextCursor());
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public byte[] getBody() {
+    return body;
+  }
+
+  public List<String> getUnavailableBanks() {
+    return unavailableBanks;
+  }
+
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  public boolean isPartial() {
+    return !unavailableBanks.isEmpty();
+  }
+}
@@ -0,0 +1,82 @@
+package io.bankbridge.response;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of rendered responses keyed by the canonical query.
+ * Every entry keeps the version of the banks it was rendered from, an entry of an older version is a miss
+ * and is replaced by the newly rendered response. Rendering happens outside the lock, so two requests missing
+ * the same key at the same time may both render it.
+ * @param <V> rendered response
+ */
+public class ResponseCache<V> {
+
+  private final Map<String, Entry<V>> entries;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public ResponseCache(int maxEntries) {
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  /**
+   * Returns the cached response of the key for the given version, or renders and caches it.
+   * @param key canonical query
+   * @param version version of the banks the response is rendered from
+   * @param renderer renders the response on a miss
+   * @return
+   */
+  public V get(String key, long version, Supplier<V> renderer) {
+    Entry<V> entry;
+    synchronized (entries) {
+      entry = entries.get(key);
+    }
+    if (entry != null && entry.version == version) {
+      hits.increment();
+      return entry.value;
+    }
+    misses.increment();
+    V value = renderer.get();
+    synchronized (entries) {
+      Entry<V> current = entries.get(key);
+      //Not overwriting a response rendered meanwhile from newer banks
+      if (current == null || current.version <= version) {
+        entries.put(key, new Entry<>(version, value));
+      }
+    }
+    return value;
+  }
+
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  private static class Entry<V> {
+
+    private final long version;
+    private final V value;
+
+    private Entry(long version, V value) {
+      this.version = version;
+      this.value = value;
+    }
+  }
+}
@@ -19,6 +19,7 @@ import org.junit.BeforeClass;
 import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.net.http.HttpResponse.BodyHandlers;
@@ -78,13 +79,38 @@ public class BaseTest {
    * @return
    */
   protected TestResponse request(String path) {
+    return request("GET", path);
+  }
+
+  /**
+   * Same as request(path) with the given http method and without body
+   * @param method http method
+   * @param path API path including queryparams
+   * @return
+   */
+  protected TestResponse request(String method, String path) {
+    return request(method, path, new String[0]);
+  }
+
+  /**
+   * Same as request(method, path) with the given request headers
+   * @param method http method
+   * @param path API path including queryparams
+   * @param headers header names and values, one after the other
+   * @return
+   */
+  protected TestResponse request(String method, String path, String... headers) {
     try {
 
-      HttpRequest request = HttpRequest.newBuilder()
+      HttpRequest.Builder builder = HttpRequest.newBuilder()
           .uri(URI.create("http://localhost:8082" + path))
-          .build();
-      HttpResponse response = client.send(request, BodyHandlers.ofString());
-      return new TestResponse(response.statusCode(), (String) response.body());
+          .method(method, HttpRequest.BodyPublishers.noBody());
+      if (headers.length > 0) {
+        builder.headers(headers);
+      }
+      HttpRequest request = builder.build();
+      HttpResponse<String> response = client.send(request, BodyHandlers.ofString());
+      return new TestResponse(response.statusCode(), response.body(), response.headers());
     } catch (InterruptedException | IOException e) {
       e.printStackTrace();
       fail("Sending request failed: " + e.getMessage());
@@ -98,9 +124,11 @@ public class BaseTest {
   protected static class TestResponse {
     public final String body;
     public final int status;
-    public TestResponse(int status, String body) {
+    public final HttpHeaders headers;
+    public TestResponse(int status, String body, HttpHeaders headers) {
       this.status = status;
       this.body = body;
+      this.headers = headers;
     }
 
   }
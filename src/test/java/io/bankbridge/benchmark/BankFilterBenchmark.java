@@ -0,0 +1,130 @@
+package io.bankbridge.benchmark;
+
+import io.bankbridge.handler.BanksUtil;
+import io.bankbridge.index.BankIndex;
+import io.bankbridge.response.BankDetails;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the filtering of a large synthetic catalog by the predicate scan (PredicateScan)
+ * with the compiled plan of BankIndex. Both return the same banks for the same queries.
+ *
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=io.bankbridge.benchmark.BankFilterBenchmark
+ *   -Dexec.args="1000000 200"
+ * args: catalog size, number of queries per round
+ */
+public class BankFilterBenchmark {
+
+  private static final String[] COUNTRY_CODES = {"DE", "NO", "SE", "ES", "GB", "FR", "IT", "NL", "PL", "FI"};
+  private static final String[] AUTHS = {"oauth", "ssl-certificate", "open-id"};
+  private static final String[] PRODUCTS = {"accounts", "credit-cards", "loans", "mortgages", "savings"};
+  private static final Set<String> FILTERS = Set.of(BankIndex.COUNTRY_CODE, BankIndex.ID, BankIndex.NAME,
+      BankIndex.AUTH, BankIndex.PRODUCT);
+  private static final int PAGE_SIZE = 20;
+  private static final int ROUNDS = 5;
+
+  public static void main(String[] args) {
+    int catalogSize = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    int queryCount = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+    Random random = new Random(42);
+    List<BankDetails> banks = new ArrayList<>(catalogSize);
+    for (int i = 0; i < catalogSize; i++) {
+      banks.add(bank(i, random));
+    }
+    long buildStart = System.nanoTime();
+    BankIndex bankIndex = BankIndex.build(banks);
+    System.out.printf("catalog=%d index build=%d ms%n", catalogSize, (System.nanoTime() - buildStart) / 1_000_000);
+
+    List<Map<String, String>> queries = new ArrayList<>();
+    for (int i = 0; i < queryCount; i++) {
+      queries.add(query(random, catalogSize));
+    }
+    for (Map<String, String> query : queries) {
+      if (!ids(scan(banks, query)).equals(ids(indexed(bankIndex, query)))) {
+        throw new IllegalStateException("Index and scan differ for " + query);
+      }
+    }
+
+    for (int round = 1; round <= ROUNDS; round++) {
+      long scanNanos = time(queries, query -> scan(banks, query).size());
+      long indexNanos = time(queries, query -> indexed(bankIndex, query).size());
+      System.out.printf("round %d: scan=%.1f us/query index=%.1f us/query%n", round,
+          scanNanos / 1000.0 / queries.size(), indexNanos / 1000.0 / queries.size());
+    }
+  }
+
+  /**
+   * Current filtering, every predicate is tested against every bank until the page is full.
+   */
+  private static List<BankDetails> scan(List<BankDetails> banks, Map<String, String> query) {
+    return PredicateScan.page(banks.stream().filter(PredicateScan.predicate(query)), query);
+  }
+
+  private static List<BankDetails> indexed(BankIndex bankIndex, Map<String, String> query) {
+    return BanksUtil.paginatedResponse(bankIndex, 0, PredicateScan.bankQuery(query), FILTERS).getBanks();
+  }
+
+  private static List<String> ids(List<BankDetails> banks) {
+    return banks.stream().map(BankDetails::getId).collect(Collectors.toList());
+  }
+
+  private static long time(List<Map<String, String>> queries, ToIntFunction<Map<String, String>> run) {
+    long blackhole = 0;
+    long start = System.nanoTime();
+    for (Map<String, String> query : queries) {
+      blackhole += run.applyAsInt(query);
+    }
+    long elapsed = System.nanoTime() - start;
+    if (blackhole < 0) {
+      System.out.println(blackhole);
+    }
+    return elapsed;
+  }
+
+  /**
+   * Mix of selective (id, name) and broad (country code, auth, product) queries, mostly combined.
+   */
+  private static Map<String, String> query(Random random, int catalogSize) {
+    switch (random.nextInt(4)) {
+      case 0:
+        return Map.of("id", "BANK" + random.nextInt(catalogSize) + "XXX");
+      case 1:
+        return Map.of("countrycode", pick(COUNTRY_CODES, random), "auth", pick(AUTHS, random),
+            "size", String.valueOf(PAGE_SIZE));
+      case 2:
+        return Map.of("countrycode", pick(COUNTRY_CODES, random), "product", pick(PRODUCTS, random),
+            "name", "Bank " + random.nextInt(catalogSize / 10 + 1));
+      default:
+        return Map.of("auth", pick(AUTHS, random), "product", pick(PRODUCTS, random),
+            "pageNo", String.valueOf(random.nextInt(100)), "size", String.valueOf(PAGE_SIZE));
+    }
+  }
+
+  private static BankDetails bank(int i, Random random) {
+    BankDetails bankDetails = new BankDetails();
+    bankDetails.setId("BANK" + i + "XXX");
+    bankDetails.setName("Bank " + i / 10);
+    bankDetails.setCountryCode(pick(COUNTRY_CODES, random));
+    bankDetails.setAuth(pick(AUTHS, random));
+    ArrayList<String> products = new ArrayList<>();
+    for (String product : PRODUCTS) {
+      if (random.nextBoolean()) {
+        products.add(product);
+      }
+    }
+    bankDetails.setProducts(products);
+    return bankDetails;
+  }
+
+  private static String pick(String[] values, Random random) {
+    return values[random.nextInt(values.length)];
+  }
+}
@@ -0,0 +1,81 @@
+package io.bankbridge.benchmark;
+
+import io.bankbridge.index.BankIndex;
+import io.bankbridge.response.BankDetails;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the retained heap per bank of a synthetic catalog kept as BankDetails objects (the representation used
+ * before the compact catalog) and as the compact BankIndex. Run with a fixed heap so the collector is stable,
+ * for example -Xms2g -Xmx2g.
+ *
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=io.bankbridge.benchmark.CatalogMemoryBenchmark
+ *   -Dexec.args="1000000"
+ * args: catalog size
+ */
+public class CatalogMemoryBenchmark {
+
+  private static final String[] COUNTRY_CODES = {"DE", "NO", "SE", "ES", "GB", "FR", "IT", "NL", "PL", "FI"};
+  private static final String[] AUTHS = {"oauth", "ssl-certificate", "open-id"};
+  private static final String[] PRODUCTS = {"accounts", "credit-cards", "loans", "mortgages", "savings", "payments"};
+
+  public static void main(String[] args) {
+    int catalogSize = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+    long baseline = usedHeap();
+    List<BankDetails> banks = generate(catalogSize);
+    long objectsBytes = usedHeap() - baseline;
+
+    BankIndex bankIndex = BankIndex.build(banks);
+    banks = null;
+    long compactBytes = usedHeap() - baseline;
+
+    System.out.printf("catalog=%d banks%n", bankIndex.size());
+    System.out.printf("BankDetails objects: %d MB, %.1f bytes per bank%n", objectsBytes / (1024 * 1024),
+        objectsBytes / (double) catalogSize);
+    System.out.printf("compact BankIndex (with postings): %d MB, %.1f bytes per bank%n",
+        compactBytes / (1024 * 1024), compactBytes / (double) catalogSize);
+  }
+
+  /**
+   * Banks as they are read from the file, every field is its own String like after JSON parsing.
+   */
+  private static List<BankDetails> generate(int catalogSize) {
+    Random random = new Random(42);
+    List<BankDetails> banks = new ArrayList<>(catalogSize);
+    for (int i = 0; i < catalogSize; i++) {
+      BankDetails bankDetails = new BankDetails();
+      bankDetails.setId("BANK" + i + "XXX");
+      bankDetails.setName("Bank of " + Integer.toString(i, 36) + " " + i % 97);
+      bankDetails.setCountryCode(new String(COUNTRY_CODES[random.nextInt(COUNTRY_CODES.length)]));
+      bankDetails.setAuth(new String(AUTHS[random.nextInt(AUTHS.length)]));
+      ArrayList<String> products = new ArrayList<>();
+      for (String product : PRODUCTS) {
+        if (random.nextBoolean()) {
+          products.add(new String(product));
+        }
+      }
+      bankDetails.setProducts(products);
+      banks.add(bankDetails);
+    }
+    return banks;
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    long used = Long.MAX_VALUE;
+    //Collecting a few times until the used heap doesn't go down any more
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+      long current = runtime.totalMemory() - runtime.freeMemory();
+      if (current >= used) {
+        break;
+      }
+      used = current;
+    }
+    return used;
+  }
+}
@@ -0,0 +1,162 @@
+package io.bankbridge.benchmark;
+
+import com.sun.management.ThreadMXBean;
+import io.bankbridge.handler.BanksUtil;
+import io.bankbridge.index.BankIndex;
+import io.bankbridge.response.BankDetails;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Compares two ways of answering a filtered page of the catalog, for every catalog size given:
+ * three-pass -> every bank mapped into a new list, filtered into a second list and then paginated by skip/limit
+ * lazy -> BankIndex.Plan, candidates of the smallest posting tested one by one until the page is full
+ * Both return the same banks. Every round runs the same queries, the first rounds are warm-up, and the
+ * allocation per query is measured with the allocated bytes of the thread.
+ *
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=io.bankbridge.benchmark.PageQueryBenchmark
+ *   -Dexec.args="10000,1000000 200"
+ * args: catalog sizes, number of queries per round
+ */
+public class PageQueryBenchmark {
+
+  private static final String[] COUNTRY_CODES = {"DE", "NO", "SE", "ES", "GB", "FR", "IT", "NL", "PL", "FI"};
+  private static final String[] AUTHS = {"oauth", "ssl-certificate", "open-id"};
+  private static final String[] PRODUCTS = {"accounts", "credit-cards", "loans", "mortgages", "savings"};
+  private static final Set<String> FILTERS = Set.of(BankIndex.COUNTRY_CODE, BankIndex.ID, BankIndex.NAME,
+      BankIndex.AUTH, BankIndex.PRODUCT);
+  private static final int PAGE_SIZE = 20;
+  private static final int WARM_UP_ROUNDS = 3;
+  private static final int ROUNDS = 5;
+
+  public static void main(String[] args) {
+    String[] catalogSizes = (args.length > 0 ? args[0] : "10000,1000000").split(",");
+    int queryCount = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+    for (String catalogSize : catalogSizes) {
+      run(Integer.parseInt(catalogSize), queryCount);
+    }
+  }
+
+  private static void run(int catalogSize, int queryCount) {
+    Random random = new Random(42);
+    List<BankDetails> banks = new ArrayList<>(catalogSize);
+    for (int i = 0; i < catalogSize; i++) {
+      banks.add(bank(i, random));
+    }
+    BankIndex bankIndex = BankIndex.build(banks);
+    List<Map<String, String>> queries = new ArrayList<>();
+    for (int i = 0; i < queryCount; i++) {
+      queries.add(query(random, catalogSize));
+    }
+    for (Map<String, String> query : queries) {
+      List<String> expected = ids(threePass(bankIndex, query));
+      if (!expected.equals(ids(lazy(bankIndex, query)))) {
+        throw new IllegalStateException("Results differ for " + query);
+      }
+    }
+
+    System.out.printf("catalog=%d queries=%d%n", catalogSize, queryCount);
+    for (int round = 1; round <= WARM_UP_ROUNDS + ROUNDS; round++) {
+      Measurement threePass = measure(queries, query -> threePass(bankIndex, query).size());
+      Measurement lazy = measure(queries, query -> lazy(bankIndex, query).size());
+      if (round > WARM_UP_ROUNDS) {
+        System.out.printf("  round %d: three-pass=%s lazy=%s%n", round - WARM_UP_ROUNDS, threePass, lazy);
+      }
+    }
+  }
+
+  /**
+   * Approach before the index, whole catalog mapped, filtered into a list and streamed again for the page.
+   */
+  private static List<BankDetails> threePass(BankIndex bankIndex, Map<String, String> query) {
+    List<BankDetails> mapped = new ArrayList<>(bankIndex.getBanks());
+    List<BankDetails> filtered = mapped.stream().filter(PredicateScan.predicate(query)).collect(Collectors.toList());
+    return PredicateScan.page(filtered.stream(), query);
+  }
+
+  private static List<BankDetails> lazy(BankIndex bankIndex, Map<String, String> query) {
+    return BanksUtil.paginatedResponse(bankIndex, 0, PredicateScan.bankQuery(query), FILTERS).getBanks();
+  }
+
+  private static List<String> ids(List<BankDetails> banks) {
+    return banks.stream().map(BankDetails::getId).collect(Collectors.toList());
+  }
+
+  private static Measurement measure(List<Map<String, String>> queries, ToIntFunction<Map<String, String>> run) {
+    ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long blackhole = 0;
+    long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+    long start = System.nanoTime();
+    for (Map<String, String> query : queries) {
+      blackhole += run.applyAsInt(query);
+    }
+    long elapsed = System.nanoTime() - start;
+    long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+    if (blackhole < 0) {
+      System.out.println(blackhole);
+    }
+    return new Measurement(elapsed / queries.size(), allocated / queries.size());
+  }
+
+  /**
+   * Mix of selective (id, name) and broad (country code, auth, product) queries, with some deep pages.
+   */
+  private static Map<String, String> query(Random random, int catalogSize) {
+    switch (random.nextInt(4)) {
+      case 0:
+        return Map.of("id", "BANK" + random.nextInt(catalogSize) + "XXX");
+      case 1:
+        return Map.of("countrycode", pick(COUNTRY_CODES, random), "auth", pick(AUTHS, random),
+            "size", String.valueOf(PAGE_SIZE));
+      case 2:
+        return Map.of("countrycode", pick(COUNTRY_CODES, random), "product", pick(PRODUCTS, random),
+            "name", "Bank " + random.nextInt(catalogSize / 10 + 1));
+      default:
+        return Map.of("auth", pick(AUTHS, random), "product", pick(PRODUCTS, random),
+            "pageNo", String.valueOf(random.nextInt(100)), "size", String.valueOf(PAGE_SIZE));
+    }
+  }
+
+  private static BankDetails bank(int i, Random random) {
+    BankDetails bankDetails = new BankDetails();
+    bankDetails.setId("BANK" + i + "XXX");
+    bankDetails.setName("Bank " + i / 10);
+    bankDetails.setCountryCode(pick(COUNTRY_CODES, random));
+    bankDetails.setAuth(pick(AUTHS, random));
+    ArrayList<String> products = new ArrayList<>();
+    for (String product : PRODUCTS) {
+      if (random.nextBoolean()) {
+        products.add(product);
+      }
+    }
+    bankDetails.setProducts(products);
+    return bankDetails;
+  }
+
+  private static String pick(String[] values, Random random) {
+    return values[random.nextInt(values.length)];
+  }
+
+  private static class Measurement {
+
+    private final long nanosPerQuery;
+    private final long bytesPerQuery;
+
+    private Measurement(long nanosPerQuery, long bytesPerQuery) {
+      this.nanosPerQuery = nanosPerQuery;
+      this.bytesPerQuery = bytesPerQuery;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%.1f us %d B", nanosPerQuery / 1000.0, bytesPerQuery);
+    }
+  }
+}
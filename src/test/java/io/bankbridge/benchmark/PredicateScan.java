@@ -0,0 +1,65 @@
+package io.bankbridge.benchmark;
+
+import io.bankbridge.handler.BankQuery;
+import io.bankbridge.response.BankDetails;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Filtering and pagination of the banks before the index, every predicate tested against every bank and the page
+ * taken by skip/limit. Kept only as the baseline of the benchmarks.
+ */
+final class PredicateScan {
+
+  private static final int PAGE_SIZE = 5;
+
+  private PredicateScan() {
+  }
+
+  /**
+   * @param query single valued query params
+   * @return all the filters of the query combined
+   */
+  static Predicate<BankDetails> predicate(Map<String, String> query) {
+    Predicate<BankDetails> predicate = bank -> true;
+    if (query.containsKey("countrycode")) {
+      predicate = predicate.and(bank -> query.get("countrycode").equals(bank.getCountryCode()));
+    }
+    if (query.containsKey("id")) {
+      predicate = predicate.and(bank -> query.get("id").equals(bank.getId()));
+    }
+    if (query.containsKey("name")) {
+      predicate = predicate.and(bank -> query.get("name").equals(bank.getName()));
+    }
+    if (query.containsKey("auth")) {
+      predicate = predicate.and(bank -> query.get("auth").equals(bank.getAuth()));
+    }
+    if (query.containsKey("product")) {
+      predicate = predicate.and(bank -> bank.getProducts().contains(query.get("product")));
+    }
+    return predicate;
+  }
+
+  /**
+   * Page of pageNo and size, banks after the page are not consumed.
+   */
+  static List<BankDetails> page(Stream<BankDetails> banks, Map<String, String> query) {
+    int size = query.containsKey("size") ? Integer.parseInt(query.get("size")) : PAGE_SIZE;
+    int pageNo = query.containsKey("pageNo") ? Integer.parseInt(query.get("pageNo")) : 0;
+    return banks.skip((long) pageNo * size).limit(size).collect(Collectors.toList());
+  }
+
+  /**
+   * Query as parsed by the before filter of the routes.
+   */
+  static BankQuery bankQuery(Map<String, String> query) {
+    Map<String, String[]> params = new HashMap<>();
+    query.forEach((param, value) -> params.put(param, new String[]{value}));
+    return BankQuery.parse(params);
+  }
+}
@@ -0,0 +1,131 @@
+package io.bankbridge.benchmark;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static spark.Spark.awaitInitialization;
+import static spark.Spark.stop;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import io.bankbridge.Main;
+import io.bankbridge.concurrent.VirtualThreads;
+import io.bankbridge.metrics.LatencyHistogram;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load driver comparing the platform thread mode with the virtual thread mode (Main --virtual-threads).
+ * Spark server is static, so one mode is measured per run, run it once for every mode and compare the output.
+ * Remote banks are stubbed by wiremock with a fixed delay, the test configuration (cache disabled) is used so every
+ * request fans out to the banks. The blocking streaming endpoint is used by default because it holds the server
+ * thread for the whole fan-out, which is where the thread mode matters. The virtual mode is not measured on Java
+ * versions without virtual threads.
+ *
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=io.bankbridge.benchmark.ThreadModeBenchmark
+ *   -Dexec.args="virtual 2000 30 100 /v2/banks/stream"
+ * args: mode (platform|virtual), concurrent requests, duration in seconds, remote delay in millis, path
+ */
+public class ThreadModeBenchmark {
+
+  private static final int SERVER_PORT = 8090;
+  private static final int REMOTE_PORT = 1234;
+  private static final int WARM_UP_SECONDS = 5;
+
+  public static void main(String[] args) throws Exception {
+    boolean virtualThreads = args.length > 0 && "virtual".equals(args[0]);
+    int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+    int durationSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+    int remoteDelayMillis = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+    String path = args.length > 4 ? args[4] : "/v2/banks/stream";
+    if (virtualThreads && !VirtualThreads.isSupported()) {
+      System.out.printf("mode=virtual is not available in Java %s, it needs Java 21 or newer, nothing measured%n",
+          System.getProperty("java.version"));
+      System.exit(1);
+    }
+
+    WireMockServer remoteBanks = new WireMockServer(wireMockConfig().port(REMOTE_PORT).containerThreads(200));
+    remoteBanks.start();
+    remoteBanks.stubFor(get(urlMatching("/.*"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withFixedDelay(remoteDelayMillis)
+            .withBody("{\"bic\":\"PARIATURDEU0XXX\",\"name\":\"Banco de espiritu santo\","
+                + "\"countryCode\":\"GB\",\"auth\":\"oauth\"}")));
+
+    Main.main(virtualThreads
+        ? new String[]{String.valueOf(SERVER_PORT), Main.VIRTUAL_THREADS_OPTION}
+        : new String[]{String.valueOf(SERVER_PORT)});
+    awaitInitialization();
+
+    HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + SERVER_PORT + path))
+        .timeout(Duration.ofSeconds(30))
+        .build();
+
+    run(client, request, concurrency, WARM_UP_SECONDS, new Result());
+    System.gc();
+    Result result = new Result();
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    threads.resetPeakThreadCount();
+    run(client, request, concurrency, durationSeconds, result);
+
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    System.out.printf("mode=%s concurrency=%d duration=%ds remoteDelay=%dms path=%s%n",
+        virtualThreads ? "virtual" : "platform", concurrency, durationSeconds, remoteDelayMillis, path);
+    System.out.printf("throughput=%.1f req/s ok=%d errors=%d%n",
+        result.ok.sum() / (double) durationSeconds, result.ok.sum(), result.errors.sum());
+    System.out.printf("latency p50=%d ms p99=%d ms%n",
+        TimeUnit.MICROSECONDS.toMillis(result.latency.getValueAtQuantile(0.5)),
+        TimeUnit.MICROSECONDS.toMillis(result.latency.getValueAtQuantile(0.99)));
+    System.out.printf("peak platform threads=%d heap used=%d MB heap committed=%d MB%n",
+        threads.getPeakThreadCount(),
+        memory.getHeapMemoryUsage().getUsed() / (1024 * 1024),
+        memory.getHeapMemoryUsage().getCommitted() / (1024 * 1024));
+
+    stop();
+    remoteBanks.stop();
+    System.exit(0);
+  }
+
+  /**
+   * Keeps concurrency requests in flight for the given duration.
+   */
+  private static void run(HttpClient client, HttpRequest request, int concurrency, int durationSeconds,
+      Result result) throws InterruptedException {
+    Semaphore inFlight = new Semaphore(concurrency);
+    long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(durationSeconds);
+    while (System.nanoTime() < end) {
+      inFlight.acquire();
+      long start = System.nanoTime();
+      client.sendAsync(request, BodyHandlers.discarding()).whenComplete((response, exception) -> {
+        if (exception == null && response.statusCode() == 200) {
+          result.ok.increment();
+          result.latency.record(System.nanoTime() - start);
+        } else {
+          result.errors.increment();
+        }
+        inFlight.release();
+      });
+    }
+    //Waiting for the requests still running, so they are not counted in the next run
+    inFlight.acquire(concurrency);
+  }
+
+  private static class Result {
+
+    private final LongAdder ok = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+  }
+}
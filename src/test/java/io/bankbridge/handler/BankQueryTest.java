@@ -0,0 +1,83 @@
+package io.bankbridge.handler;
+
+import io.bankbridge.errorhandler.BanksCustomException;
+import io.bankbridge.index.BankIndex;
+import io.bankbridge.response.BankDetails;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class BankQueryTest {
+
+  private static final Set<String> FILTERS = Set.of(BankIndex.COUNTRY_CODE, BankIndex.NAME);
+
+  @Test
+  public void verify_FiltersAreSplitAndDeduplicated() {
+    BankQuery query = BankQuery.parse(Map.of("countrycode", new String[]{"GB, no,gb", "SE"}, "name", new String[]{""},
+        "unknown", new String[]{"x"}));
+    Assert.assertEquals(query.getFilters(), Map.of("countrycode", List.of("GB", "no", "SE")));
+    Assert.assertEquals(query.getPageNo(), 0);
+    Assert.assertEquals(query.getSize(), 5);
+    Assert.assertNull(query.getCursor());
+  }
+
+  @Test
+  public void verify_IdsAndNamesAreNotSplit() {
+    BankQuery query = BankQuery.parse(Map.of("name", new String[]{"Bank, North", "bank, north", "South"},
+        "auth", new String[]{"oauth,open-id"}));
+    Assert.assertEquals(query.getFilters(), Map.of("name", List.of("Bank, North", "South"),
+        "auth", List.of("oauth", "open-id")));
+    Assert.assertTrue(query.predicate(FILTERS).test(bank("GB", "BANK, NORTH")));
+    Assert.assertFalse(query.predicate(FILTERS).test(bank("GB", "Bank")));
+  }
+
+  @Test
+  public void verify_CanonicalIgnoresCaseOrderAndDefaults() {
+    BankQuery query = BankQuery.parse(Map.of("countrycode", new String[]{"no,GB"}, "id", new String[]{"X1"}));
+    BankQuery same = BankQuery.parse(Map.of("countrycode", new String[]{"gb,NO"}, "pageNo", new String[]{"0"},
+        "size", new String[]{"5"}));
+    Assert.assertEquals(query.canonical(FILTERS), same.canonical(FILTERS));
+    Assert.assertEquals(query.canonical(FILTERS), "countrycode=gb,no&pageNo=0&size=5");
+    Assert.assertNotEquals(query.canonical(FILTERS), BankQuery.parse(Map.of("countrycode", new String[]{"no"}))
+        .canonical(FILTERS));
+  }
+
+  @Test
+  public void verify_PredicateMatchesAnyValueIgnoringCase() {
+    BankQuery query = BankQuery.parse(Map.of("countrycode", new String[]{"de,ch"}, "name", new String[]{"animat"}));
+    Assert.assertTrue(query.predicate(FILTERS).test(bank("DE", "Animat")));
+    Assert.assertFalse(query.predicate(FILTERS).test(bank("GB", "Animat")));
+    Assert.assertFalse(query.predicate(FILTERS).test(bank(null, "Animat")));
+    Assert.assertTrue(query.predicate(Set.of(BankIndex.NAME)).test(bank("GB", "ANIMAT")));
+  }
+
+  @Test
+  public void verify_InvalidPaginationIsRejected() {
+    assertBadRequest(Map.of("pageNo", new String[]{"-1"}), "Page number is not valid!");
+    assertBadRequest(Map.of("size", new String[]{"-1"}), "Page size is not valid!");
+    assertBadRequest(Map.of("size", new String[]{"2000000000"}), "Page size is not valid!");
+    Assert.assertEquals(BankQuery.parse(Map.of("size", new String[]{"1000"})).getSize(), BankQuery.MAX_PAGE_SIZE);
+    assertBadRequest(Map.of("size", new String[]{"ten"}), "pageNo and size should be integer values!");
+    assertBadRequest(Map.of("cursor", new String[]{"AA"}), "Cursor is not valid!");
+  }
+
+  private static void assertBadRequest(Map<String, String[]> queryMap, String message) {
+    try {
+      BankQuery.parse(queryMap);
+      Assert.fail("Expected " + message);
+    } catch (BanksCustomException e) {
+      Assert.assertEquals(e.getStatus(), 400);
+      Assert.assertEquals(e.getMessage(), message);
+    }
+  }
+
+  private static BankDetails bank(String countryCode, String name) {
+    BankDetails bankDetails = new BankDetails();
+    bankDetails.setCountryCode(countryCode);
+    bankDetails.setName(name);
+    return bankDetails;
+  }
+}
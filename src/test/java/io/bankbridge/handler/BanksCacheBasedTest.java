@@ -1,17 +1,29 @@
 package io.bankbridge.handler;
 
 
+import io.bankbridge.config.RemoteBanksConfig;
 import io.bankbridge.response.BankDetails;
+import io.bankbridge.response.BanksPage;
+import io.bankbridge.response.RenderedPage;
 import org.junit.Assert;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class BanksCacheBasedTest {
 
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   @BeforeClass
   public static void setUp() throws Exception {
     BanksCacheBased.init();
@@ -21,9 +33,9 @@ public class BanksCacheBasedTest {
   public void verify_SuccessResponseWithDefaultSize() {
     List<BankDetails> bankDetails = BanksCacheBased.handle(new HashMap<>());
     Assert.assertEquals(bankDetails.size(), 5);
-    Assert.assertEquals(bankDetails.get(0).getId(), "DOLORENOR9XXX");
-    Assert.assertEquals(bankDetails.get(0).getName(), "Bank Dolores");
-    Assert.assertEquals(bankDetails.get(0).getCountryCode(), "NO");
+    Assert.assertEquals(bankDetails.get(0).getId(), "ANIMDEU7XXX");
+    Assert.assertEquals(bankDetails.get(0).getName(), "Animat");
+    Assert.assertEquals(bankDetails.get(0).getCountryCode(), "DE");
   }
 
   @Test
@@ -78,4 +90,120 @@ public class BanksCacheBasedTest {
     //There is only 20 banks in static so if the request for 1st pagination of size 19 then remaining only one bank
     Assert.assertEquals(bankDetails.size(), 1);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void verify_PagesAreSortedById() {
+    List<BankDetails> firstPage = BanksCacheBased.handle(Map.of("size", new String[]{"10"}));
+    List<BankDetails> secondPage = BanksCacheBased.handle(Map.of("size", new String[]{"10"}, "pageNo", new String[]{"1"}));
+    List<BankDetails> bankDetails = new ArrayList<>(firstPage);
+    bankDetails.addAll(secondPage);
+    Assert.assertEquals(bankDetails.size(), 20);
+    for (int i = 1; i < bankDetails.size(); i++) {
+      Assert.assertTrue(bankDetails.get(i - 1).getId().compareTo(bankDetails.get(i).getId()) < 0);
+    }
+  }
+
+  @Test
+  public void verify_PageAfterTheLastBankIsEmpty() {
+    Map<String, String[]> paramMap = Map.of("size", new String[]{"5"}, "pageNo", new String[]{"4"});
+    Assert.assertTrue(BanksCacheBased.handle(paramMap).isEmpty());
+  }
+
+  @Test
+  public void verify_RenderedResponseIsCachedForEquivalentQueries() throws Exception {
+    RemoteBanksConfig config = new RemoteBanksConfig();
+    config.getResponseCache().setEnabled(true);
+    BanksCacheBased.init(config);
+    RenderedPage rendered = BanksCacheBased.render(Map.of("countrycode", new String[]{"DE"}));
+    //Default page size and params which are not filters give the same response
+    RenderedPage same = BanksCacheBased.render(Map.of("countrycode", new String[]{"DE"}, "size", new String[]{"5"},
+        "unknown", new String[]{"1"}));
+    Assert.assertSame(rendered, same);
+    //Cached responses are not served any more once the catalog is replaced
+    BanksCacheBased.reload();
+    RenderedPage reloaded = BanksCacheBased.render(Map.of("countrycode", new String[]{"DE"}));
+    Assert.assertNotSame(rendered, reloaded);
+    Assert.assertArrayEquals(rendered.getBody(), reloaded.getBody());
+  }
+
+  @Test
+  public void verify_ReloadPublishesNewVersionWithSameBanks() throws Exception {
+    long version = BanksCacheBased.getCatalogVersion();
+    Assert.assertEquals(BanksCacheBased.reload(), version + 1);
+    Assert.assertEquals(BanksCacheBased.handle(Map.of("size", new String[]{"25"})).size(), 20);
+  }
+
+  @Test
+  public void verify_SnapshotIsServedAtStartupAndCorruptOneFallsBack() throws Exception {
+    RemoteBanksConfig config = new RemoteBanksConfig();
+    Path snapshot = temporaryFolder.getRoot().toPath().resolve("catalog.snapshot");
+    config.getSnapshot().setEnabled(true);
+    config.getSnapshot().setPath(snapshot.toString());
+    try {
+      BanksCacheBased.init(config);
+      Assert.assertTrue(Files.exists(snapshot));
+      //Restart is served from the snapshot without parsing the banks file
+      BanksCacheBased.init(config);
+      Assert.assertEquals(BanksCacheBased.handle(Map.of("size", new String[]{"25"})).size(), 20);
+      Assert.assertEquals(BanksCacheBased.handle(new HashMap<>()).get(0).getId(), "ANIMDEU7XXX");
+      //Corrupt snapshot falls back to the banks file
+      Files.write(snapshot, new byte[]{1, 2, 3});
+      BanksCacheBased.init(config);
+      Assert.assertEquals(BanksCacheBased.handle(Map.of("size", new String[]{"25"})).size(), 20);
+      Assert.assertTrue(Files.size(snapshot) > 3);
+    } finally {
+      BanksCacheBased.init();
+    }
+  }
+
+  @Test
+  public void verify_BanksFileAboveTheLimitsKeepsThePreviousCatalog() throws Exception {
+    long version = BanksCacheBased.getCatalogVersion();
+    RemoteBanksConfig banksLimited = new RemoteBanksConfig();
+    banksLimited.getCatalog().setMaxBanks(19);
+    RemoteBanksConfig bytesLimited = new RemoteBanksConfig();
+    bytesLimited.getCatalog().setMaxBytes(100);
+    try {
+      for (RemoteBanksConfig config : new RemoteBanksConfig[]{banksLimited, bytesLimited}) {
+        try {
+          BanksCacheBased.init(config);
+          Assert.fail("Banks file above the catalog limits should not be loaded");
+        } catch (IOException e) {
+          Assert.assertTrue(e.getMessage().contains("catalog.max"));
+        }
+        Assert.assertEquals(BanksCacheBased.getCatalogVersion(), version);
+        Assert.assertEquals(BanksCacheBased.handle(Map.of("size", new String[]{"25"})).size(), 20);
+      }
+    } finally {
+      BanksCacheBased.init();
+    }
+  }
+
+  @Test
+  public void verify_CursorWalksEveryBankOnce() {
+    List<String> byPageNo = new ArrayList<>();
+    BanksCacheBased.handle(Map.of("size", new String[]{"25"})).forEach(bank -> byPageNo.add(bank.getId()));
+    List<String> byCursor = new ArrayList<>();
+    BanksPage page = BanksCacheBased.handlePage(Map.of("size", new String[]{"6"}));
+    page.getBanks().forEach(bank -> byCursor.add(bank.getId()));
+    while (page.getNextCursor() != null) {
+      page = BanksCacheBased.handlePage(Map.of("size", new String[]{"6"}, "cursor", new String[]{page.getNextCursor()}));
+      page.getBanks().forEach(bank -> byCursor.add(bank.getId()));
+    }
+    Assert.assertEquals(byCursor, byPageNo);
+    //Cursor is not given for the last page, even when it is full
+    Assert.assertNull(BanksCacheBased.handlePage(Map.of("size", new String[]{"20"})).getNextCursor());
+  }
+
+  @Test
+  public void verify_CursorContinuesAfterItsIdOnceTheCatalogIsReplaced() throws Exception {
+    BanksPage first = BanksCacheBased.handlePage(Map.of("countrycode", new String[]{"DE"}, "size", new String[]{"1"}));
+    BanksPage expected = BanksCacheBased.handlePage(Map.of("countrycode", new String[]{"DE"}, "size", new String[]{"1"},
+        "cursor", new String[]{first.getNextCursor()}));
+    BanksCacheBased.reload();
+    BanksPage second = BanksCacheBased.handlePage(Map.of("countrycode", new String[]{"DE"}, "size", new String[]{"1"},
+        "cursor", new String[]{first.getNextCursor()}));
+    Assert.assertEquals(second.getBanks().get(0).getId(), expected.getBanks().get(0).getId());
+    Assert.assertTrue(second.getBanks().get(0).getId().compareTo(first.getBanks().get(0).getId()) > 0);
+  }
+}
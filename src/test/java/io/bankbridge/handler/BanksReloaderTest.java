@@ -0,0 +1,152 @@
+package io.bankbridge.handler;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.bankbridge.config.RemoteBanksConfig;
+import io.bankbridge.errorhandler.BanksCustomException;
+import io.bankbridge.model.RemoteBanksResult;
+import io.bankbridge.provider.RemoteBanksProvider;
+import io.bankbridge.response.BankDetails;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class BanksReloaderTest {
+
+  private static final String NEW_BANKS = "{\"banks\":[{\"bic\":\"NEWBANKNL2XXX\",\"name\":\"New Bank\","
+      + "\"countryCode\":\"NL\",\"products\":[\"accounts\"]}]}";
+  private static final String NEW_REMOTE_BANKS = "{\"New Bank\":\"http://localhost:1234/new\"}";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path directory;
+  private BanksRemoteCalls banksRemoteCalls;
+  private BanksReloader banksReloader;
+  //Uris the remote banks were called with in the last request
+  private final List<String> calledUris = new ArrayList<>();
+
+  @Before
+  public void start() throws Exception {
+    directory = temporaryFolder.getRoot().toPath();
+    copyFromClasspath(BanksCacheBased.BANKS_FILE);
+    copyFromClasspath(BanksRemoteCalls.BANKS_FILE);
+    BankFiles.setDirectory(directory.toString());
+    BanksCacheBased.init();
+    RemoteBanksProvider provider = mock(RemoteBanksProvider.class);
+    when(provider.getRemoteBanksDetails(anyList())).thenAnswer(invocation -> {
+      List<String> uris = invocation.getArgument(0);
+      calledUris.clear();
+      calledUris.addAll(uris);
+      return new RemoteBanksResult(Map.of(), uris);
+    });
+    banksRemoteCalls = new BanksRemoteCalls(provider);
+    banksReloader = new BanksReloader(banksRemoteCalls, new RemoteBanksConfig.Reload());
+  }
+
+  @After
+  public void stop() throws Exception {
+    banksReloader.stop();
+    BankFiles.setDirectory(null);
+    BanksCacheBased.init();
+    BanksRemoteCalls.init();
+  }
+
+  @Test
+  public void verify_ChangedFilesAreServedAfterReload() throws Exception {
+    write(BanksCacheBased.BANKS_FILE, NEW_BANKS);
+    write(BanksRemoteCalls.BANKS_FILE, NEW_REMOTE_BANKS);
+    long staticVersion = BanksCacheBased.getCatalogVersion();
+
+    BanksReloader.Versions versions = banksReloader.reload();
+    Assert.assertEquals(versions.getStaticBanksVersion(), staticVersion + 1);
+    List<BankDetails> banks = BanksCacheBased.handle(Map.of("size", new String[]{"25"}));
+    Assert.assertEquals(banks.size(), 1);
+    Assert.assertEquals(banks.get(0).getId(), "NEWBANKNL2XXX");
+    Assert.assertEquals(banks.get(0).getCountryCode(), "NL");
+    Assert.assertEquals(banksRemoteCalls.handle(Map.of()).getUnavailableBanks(), List.of("New Bank"));
+    Assert.assertEquals(calledUris, List.of("http://localhost:1234/new"));
+  }
+
+  @Test
+  public void verify_FailedReloadKeepsThePreviousBanksOfBothFiles() throws Exception {
+    List<BankDetails> previous = BanksCacheBased.handle(Map.of("size", new String[]{"25"}));
+    long staticVersion = BanksCacheBased.getCatalogVersion();
+    long remoteVersion = BanksRemoteCalls.getConfigVersion();
+    //banks-v1.json is valid, banks-v2.json is not, so neither of them is published
+    write(BanksCacheBased.BANKS_FILE, NEW_BANKS);
+    write(BanksRemoteCalls.BANKS_FILE, "{\"New Bank\":");
+
+    try {
+      banksReloader.reload();
+      Assert.fail("Reload of a file which is not valid should fail");
+    } catch (BanksCustomException e) {
+      Assert.assertEquals(e.getStatus(), 500);
+    }
+    Assert.assertEquals(BanksCacheBased.getCatalogVersion(), staticVersion);
+    Assert.assertEquals(BanksRemoteCalls.getConfigVersion(), remoteVersion);
+    List<BankDetails> banks = BanksCacheBased.handle(Map.of("size", new String[]{"25"}));
+    Assert.assertEquals(banks.size(), previous.size());
+    Assert.assertEquals(banks.get(0).getId(), previous.get(0).getId());
+    banksRemoteCalls.handle(Map.of());
+    Assert.assertEquals(calledUris.size(), 20);
+  }
+
+  @Test
+  public void verify_ChangedFileInDirectoryIsReloaded() throws Exception {
+    RemoteBanksConfig.Reload config = new RemoteBanksConfig.Reload();
+    config.setWatchFiles(true);
+    config.setDebounceMillis(50);
+    banksReloader = new BanksReloader(banksRemoteCalls, config);
+    banksReloader.start();
+    long staticVersion = BanksCacheBased.getCatalogVersion();
+
+    write(BanksCacheBased.BANKS_FILE, NEW_BANKS);
+    long deadline = System.currentTimeMillis() + 10000;
+    while (BanksCacheBased.getCatalogVersion() == staticVersion && System.currentTimeMillis() < deadline) {
+      Thread.sleep(20);
+    }
+    Assert.assertEquals(BanksCacheBased.handle(Map.of()).get(0).getId(), "NEWBANKNL2XXX");
+  }
+
+  @Test
+  public void verify_AdminTokenIsRequired() {
+    Assert.assertFalse(banksReloader.isAdminEnabled());
+    RemoteBanksConfig.Reload config = new RemoteBanksConfig.Reload();
+    config.setAdminToken("secret");
+    BanksReloader reloader = new BanksReloader(banksRemoteCalls, config);
+    Assert.assertTrue(reloader.isAdminEnabled());
+    reloader.authorize("secret");
+    for (String token : new String[]{null, "", "wrong", "secret2"}) {
+      try {
+        reloader.authorize(token);
+        Assert.fail("Token " + token + " should not be accepted");
+      } catch (BanksCustomException e) {
+        Assert.assertEquals(e.getStatus(), 401);
+      }
+    }
+  }
+
+  private void copyFromClasspath(String file) throws Exception {
+    try (InputStream input = Thread.currentThread().getContextClassLoader().getResourceAsStream(file)) {
+      Files.copy(input, directory.resolve(file));
+    }
+  }
+
+  private void write(String file, String content) throws Exception {
+    Files.write(directory.resolve(file), content.getBytes(StandardCharsets.UTF_8));
+  }
+}
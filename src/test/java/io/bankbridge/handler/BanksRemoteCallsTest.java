@@ -4,18 +4,20 @@ package io.bankbridge.handler;
 import static org.mockito.Mockito.mock;
 
 import io.bankbridge.model.BankModel;
+import io.bankbridge.model.RemoteBanksResult;
 import io.bankbridge.provider.RemoteBanksProvider;
-import io.bankbridge.provider.RemoteBanksProviderImpl;
 import io.bankbridge.response.BankDetails;
+import io.bankbridge.response.BanksPage;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 
-import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class BanksRemoteCallsTest {
 
@@ -32,7 +34,7 @@ public class BanksRemoteCallsTest {
   @Test
   public void verify_SuccessResponseWithDefaultSize() {
     Mockito.when(remoteBanksProvider.getRemoteBanksDetails(Mockito.any())).thenReturn(getMockRemoteBanks());
-    List<BankDetails> bankDetails = banksRemoteCalls.handle(new HashMap<>());
+    List<BankDetails> bankDetails = banksRemoteCalls.handle(new HashMap<>()).getBanks();
     Assert.assertEquals(bankDetails.size(), 3);
     Assert.assertEquals(bankDetails.get(0).getId(), "id1");
 
@@ -44,7 +46,7 @@ public class BanksRemoteCallsTest {
 
     String[] size = {"1"};
     Map<String, String[]> paramMap = Map.of("size", size);
-    List<BankDetails> bankDetails = banksRemoteCalls.handle(paramMap);
+    List<BankDetails> bankDetails = banksRemoteCalls.handle(paramMap).getBanks();
     //If size is defined as 12 without any filters then it will return 12 banks details
     Assert.assertEquals(bankDetails.size(), 1);
   }
@@ -54,30 +56,56 @@ public class BanksRemoteCallsTest {
     Mockito.when(remoteBanksProvider.getRemoteBanksDetails(Mockito.any())).thenReturn(getMockRemoteBanks());
     String[] countryCode = {"DE"};
     Map<String, String[]> paramMap = Map.of( "countrycode", countryCode);
-    List<BankDetails> bankDetails = banksRemoteCalls.handle(paramMap);
+    List<BankDetails> bankDetails = banksRemoteCalls.handle(paramMap).getBanks();
     //in mock bank details there are 2 banks with countrycode
     Assert.assertEquals(bankDetails.size(), 2);
     Assert.assertTrue(bankDetails.stream().allMatch(bank -> bank.getCountryCode().equals("DE")));
   }
 
+  @Test
+  public void verify_UnavailableBanksAreReportedByName() {
+    Mockito.when(remoteBanksProvider.getRemoteBanksDetails(Mockito.any())).thenReturn(getMockRemoteBanks());
+    BanksPage banksPage = banksRemoteCalls.handle(new HashMap<>());
+    //Only 3 of the 20 configured banks answered in mock
+    Assert.assertTrue(banksPage.isPartial());
+    Assert.assertEquals(banksPage.getUnavailableBanks().size(), 17);
+    Assert.assertFalse(banksPage.getUnavailableBanks().contains("Royal Bank of Fun"));
+    Assert.assertTrue(banksPage.getUnavailableBanks().contains("Animat"));
+  }
+
+  @Test
+  public void verify_AsyncPageIsBuiltWhenRemoteCallsComplete() {
+    CompletableFuture<RemoteBanksResult> remoteCalls = new CompletableFuture<>();
+    Mockito.when(remoteBanksProvider.getRemoteBanksDetailsAsync(Mockito.any())).thenReturn(remoteCalls);
+    String[] countryCode = {"DE"};
+    CompletableFuture<BanksPage> banksPage = banksRemoteCalls.handleAsync(Map.of("countrycode", countryCode));
+    Assert.assertFalse(banksPage.isDone());
+
+    remoteCalls.complete(getMockRemoteBanks());
+    Assert.assertEquals(banksPage.join().getBanks().size(), 2);
+    Assert.assertEquals(banksPage.join().getUnavailableBanks().size(), 17);
+  }
 
-  private List<BankModel> getMockRemoteBanks() {
-    List<BankModel> bankDetailsList = new ArrayList<>();
+  /**
+   * Mock result for 3 banks, keyed by the uris configured in banks-v2.json
+   */
+  private RemoteBanksResult getMockRemoteBanks() {
+    Map<String, BankModel> bankDetailsList = new LinkedHashMap<>();
     BankModel bankDetails = new BankModel();
     bankDetails.setCountryCode("NO");
     bankDetails.setName("TestBankNO");
     bankDetails.setBic("id2");
-    bankDetailsList.add(bankDetails);
+    bankDetailsList.put("http://localhost:1234/rbf", bankDetails);
     bankDetails = new BankModel();
     bankDetails.setCountryCode("DE");
     bankDetails.setName("TestBankEN");
     bankDetails.setBic("id1");
-    bankDetailsList.add(bankDetails);
+    bankDetailsList.put("http://localhost:1234/cs", bankDetails);
     bankDetails = new BankModel();
     bankDetails.setCountryCode("DE");
     bankDetails.setName("TestBankEN2");
     bankDetails.setBic("id3");
-    bankDetailsList.add(bankDetails);
-    return bankDetailsList;
+    bankDetailsList.put("http://localhost:1234/bes", bankDetails);
+    return new RemoteBanksResult(bankDetailsList, List.of());
   }
 }
\ No newline at end of file
@@ -0,0 +1,62 @@
+package io.bankbridge.handler;
+
+import io.bankbridge.model.BankModel;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+public class StaticBanksLoaderTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void verify_LoadsEveryBankOfTheFile() throws Exception {
+    List<BankModel> banks = new ArrayList<>();
+    StaticBanksLoader.LoadStats stats = StaticBanksLoader.load(
+        Thread.currentThread().getContextClassLoader().getResource(BanksCacheBased.BANKS_FILE), banks::add);
+    Assert.assertEquals(20, stats.getBanks());
+    Assert.assertEquals(20, banks.size());
+    Assert.assertTrue(stats.getBytes() > 0);
+    Assert.assertEquals("PARIATURDEU0XXX", banks.get(0).getBic());
+    Assert.assertEquals("Banco de espiritu santo", banks.get(0).getName());
+    Assert.assertEquals("GB", banks.get(0).getCountryCode());
+    Assert.assertEquals("oauth", banks.get(0).getAuth());
+    Assert.assertEquals(List.of("accounts", "payments"), banks.get(0).getProducts());
+  }
+
+  @Test
+  public void verify_UnknownFieldsAreSkipped() throws Exception {
+    File file = write("{\"version\":{\"major\":2,\"tags\":[\"a\"]},\"banks\":["
+        + "{\"bic\":\"FIRSTDE1XXX\",\"extra\":{\"nested\":[1,2]},\"name\":\"First\",\"products\":null},"
+        + "{\"bic\":\"SECONDDE2XXX\",\"countryCode\":\"DE\",\"products\":[\"accounts\"],\"rank\":3}"
+        + "],\"generated\":\"today\"}");
+    List<BankModel> banks = new ArrayList<>();
+    StaticBanksLoader.LoadStats stats = StaticBanksLoader.load(file.toURI().toURL(), banks::add);
+    Assert.assertEquals(2, stats.getBanks());
+    Assert.assertEquals(file.length(), stats.getBytes());
+    Assert.assertEquals("First", banks.get(0).getName());
+    Assert.assertNull(banks.get(0).getProducts());
+    Assert.assertEquals("DE", banks.get(1).getCountryCode());
+    Assert.assertEquals(List.of("accounts"), banks.get(1).getProducts());
+  }
+
+  @Test(expected = IOException.class)
+  public void verify_InvalidFileFails() throws Exception {
+    StaticBanksLoader.load(write("{\"banks\":[{\"bic\":\"FIRSTDE1XXX\"}").toURI().toURL(), bank -> {});
+  }
+
+  private File write(String json) throws IOException {
+    File file = temporaryFolder.newFile("banks.json");
+    Files.write(file.toPath(), json.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+}
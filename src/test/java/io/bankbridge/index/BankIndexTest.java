@@ -0,0 +1,172 @@
+package io.bankbridge.index;
+
+import io.bankbridge.response.BankDetails;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class BankIndexTest {
+
+  private static final Set<String> ALL_FILTERS = Set.of(BankIndex.COUNTRY_CODE, BankIndex.ID, BankIndex.NAME,
+      BankIndex.AUTH, BankIndex.PRODUCT);
+
+  private final BankIndex bankIndex = BankIndex.build(List.of(
+      bank("A1", "Alpha", "DE", "oauth", "accounts"),
+      bank("B2", "Beta", "NO", "ssl-certificate", "accounts", "credit-cards"),
+      bank("C3", "Gamma", "DE", "ssl-certificate", "credit-cards"),
+      bank("D4", "Beta", "DE", "oauth", "accounts")));
+
+  @Test
+  public void verify_MultipleFiltersAreCombined() {
+    Assert.assertEquals(ids(page(bankIndex, Map.of("countrycode", "DE", "product", "accounts"), 0, 10)),
+        List.of("A1", "D4"));
+    Assert.assertEquals(ids(page(bankIndex, Map.of("name", "Beta", "auth", "oauth"), 0, 10)), List.of("D4"));
+  }
+
+  @Test
+  public void verify_UnknownValueMatchesNothing() {
+    Assert.assertTrue(page(bankIndex, Map.of("countrycode", "DE", "id", "X9"), 0, 10).isEmpty());
+  }
+
+  @Test
+  public void verify_UnsupportedFiltersAreIgnored() {
+    BankIndex.Plan plan = bankIndex.compile(Map.of("product", List.of("accounts")), Set.of(BankIndex.COUNTRY_CODE));
+    Assert.assertEquals(ids(plan.page(-1, 1, 2).getBanks()), List.of("B2", "C3"));
+  }
+
+  @Test
+  public void verify_PageSkipsMatchingBanks() {
+    Assert.assertEquals(ids(page(bankIndex, Map.of("countrycode", "DE"), 1, 1)), List.of("C3"));
+    Assert.assertTrue(page(bankIndex, Map.of("countrycode", "DE"), 3, 1).isEmpty());
+    Assert.assertEquals(plan(bankIndex, Map.of("countrycode", "DE")).stream().count(), 3);
+  }
+
+  @Test
+  public void verify_BanksAreMaterializedWithTheirFields() {
+    BankDetails remoteBank = new BankDetails();
+    remoteBank.setId("E5");
+    remoteBank.setName("Bänk Ø");
+    BankIndex index = BankIndex.build(List.of(bank("A1", "Alpha", "DE", "oauth", "accounts", "credit-cards"),
+        remoteBank));
+    BankDetails first = index.getBanks().get(0);
+    Assert.assertEquals(first.getId(), "A1");
+    Assert.assertEquals(first.getName(), "Alpha");
+    Assert.assertEquals(first.getCountryCode(), "DE");
+    Assert.assertEquals(first.getAuth(), "oauth");
+    Assert.assertEquals(first.getProducts(), List.of("accounts", "credit-cards"));
+    BankDetails second = page(index, Map.of("name", "Bänk Ø"), 0, 1).get(0);
+    Assert.assertEquals(second.getId(), "E5");
+    Assert.assertNull(second.getCountryCode());
+    Assert.assertNull(second.getAuth());
+    Assert.assertNull(second.getProducts());
+  }
+
+  @Test
+  public void verify_PageStopsAfterTheLastBank() {
+    BankIndex.Plan plan = plan(bankIndex, Map.of("countrycode", "DE", "product", "accounts"));
+    BankIndex.Page page = plan.page(-1, 0, 1);
+    Assert.assertEquals(ids(page.getBanks()), List.of("A1"));
+    Assert.assertTrue(page.hasMore());
+    page = plan.page(page.getLastPosition(), 0, 1);
+    Assert.assertEquals(ids(page.getBanks()), List.of("D4"));
+    Assert.assertFalse(page.hasMore());
+    Assert.assertEquals(ids(page(bankIndex, Map.of("name", "Beta"), 1, 5)), List.of("D4"));
+    Assert.assertTrue(page(bankIndex, Map.of("auth", "none"), 0, 5).isEmpty());
+  }
+
+  @Test
+  public void verify_ProductsKeepTheirOrderAndRepeats() {
+    BankIndex index = BankIndex.build(List.of(bank("A1", "Alpha", "DE", "oauth", "accounts", "credit-cards"),
+        bank("B2", "Beta", "DE", "oauth", "credit-cards", "accounts", "credit-cards")));
+    Assert.assertEquals(index.getBanks().get(1).getProducts(), List.of("credit-cards", "accounts", "credit-cards"));
+    //Bank with a repeated product is matched once
+    Assert.assertEquals(ids(page(index, Map.of("product", "credit-cards"), 0, 10)), List.of("A1", "B2"));
+  }
+
+  @Test
+  public void verify_ManyDistinctProductsAreIndexed() {
+    List<BankDetails> banks = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      banks.add(bank("ID" + i, "Bank " + i, "DE", "oauth", "product-" + i, "product-" + (i + 1) % 1000));
+    }
+    BankIndex index = BankIndex.build(banks);
+    Assert.assertEquals(ids(page(index, Map.of("product", "product-500"), 0, 10)), List.of("ID499", "ID500"));
+    Assert.assertEquals(index.getBanks().get(999).getProducts(), List.of("product-999", "product-0"));
+  }
+
+  @Test
+  public void verify_PlanMatchesAScanOfEveryBank() {
+    List<Map<String, String>> queries = List.of(Map.of(), Map.of("countrycode", "DE"),
+        Map.of("product", "credit-cards", "auth", "ssl-certificate"), Map.of("name", "Beta", "countrycode", "DE"),
+        Map.of("id", "C3", "product", "accounts"));
+    for (Map<String, String> query : queries) {
+      List<String> scanned = bankIndex.getBanks().stream()
+          .filter(bank -> query.entrySet().stream().allMatch(filter -> matches(bank, filter.getKey(), filter.getValue())))
+          .map(BankDetails::getId)
+          .collect(Collectors.toList());
+      for (int from = 0; from < 4; from++) {
+        Assert.assertEquals(ids(page(bankIndex, query, from, 2)),
+            scanned.subList(Math.min(from, scanned.size()), Math.min(from + 2, scanned.size())));
+      }
+    }
+  }
+
+  @Test
+  public void verify_PlanMatchesAnyValueIgnoringCase() {
+    BankIndex.Plan plan = bankIndex.compile(Map.of("countrycode", List.of("no", "De"), "product",
+        List.of("CREDIT-CARDS", "missing")), ALL_FILTERS);
+    Assert.assertEquals(ids(plan.page(-1, 0, 10).getBanks()), List.of("B2", "C3"));
+    Assert.assertEquals(ids(plan.stream().collect(Collectors.toList())), List.of("B2", "C3"));
+    plan = bankIndex.compile(Map.of("name", List.of("beta", "GAMMA"), "id", List.of("d4", "b2")), ALL_FILTERS);
+    BankIndex.Page page = plan.page(-1, 0, 1);
+    Assert.assertEquals(ids(page.getBanks()), List.of("B2"));
+    Assert.assertTrue(page.hasMore());
+    Assert.assertEquals(ids(plan.page(page.getLastPosition(), 0, 1).getBanks()), List.of("D4"));
+    Assert.assertTrue(bankIndex.compile(Map.of("auth", List.of("none")), ALL_FILTERS).stream().count() == 0);
+  }
+
+  private static BankIndex.Plan plan(BankIndex index, Map<String, String> query) {
+    Map<String, List<String>> filterValues = new HashMap<>();
+    query.forEach((filter, value) -> filterValues.put(filter, List.of(value)));
+    return index.compile(filterValues, ALL_FILTERS);
+  }
+
+  private static List<BankDetails> page(BankIndex index, Map<String, String> query, long skip, int size) {
+    return plan(index, query).page(-1, skip, size).getBanks();
+  }
+
+  private static boolean matches(BankDetails bank, String filter, String value) {
+    switch (filter) {
+      case BankIndex.COUNTRY_CODE:
+        return value.equals(bank.getCountryCode());
+      case BankIndex.AUTH:
+        return value.equals(bank.getAuth());
+      case BankIndex.PRODUCT:
+        return bank.getProducts() != null && bank.getProducts().contains(value);
+      case BankIndex.ID:
+        return value.equals(bank.getId());
+      default:
+        return value.equals(bank.getName());
+    }
+  }
+
+  private static List<String> ids(List<BankDetails> banks) {
+    return banks.stream().map(BankDetails::getId).collect(Collectors.toList());
+  }
+
+  private static BankDetails bank(String id, String name, String countryCode, String auth, String... products) {
+    BankDetails bankDetails = new BankDetails();
+    bankDetails.setId(id);
+    bankDetails.setName(name);
+    bankDetails.setCountryCode(countryCode);
+    bankDetails.setAuth(auth);
+    bankDetails.setProducts(new ArrayList<>(List.of(products)));
+    return bankDetails;
+  }
+}
@@ -0,0 +1,92 @@
+package io.bankbridge.index;
+
+import io.bankbridge.response.BankDetails;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class CatalogSnapshotTest {
+
+  private static final Set<String> ALL_FILTERS = Set.of(BankIndex.COUNTRY_CODE, BankIndex.ID, BankIndex.NAME,
+      BankIndex.AUTH, BankIndex.PRODUCT);
+  private static final long SOURCE_CHECKSUM = 42;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final BankIndex bankIndex = BankIndex.build(List.of(
+      bank("A1", "Alpha", "DE", "oauth", "accounts"),
+      bank("B2", "Bänk Ø", "NO", "ssl-certificate", "accounts", "credit-cards"),
+      bank("C3", null, "DE", null),
+      bank("D4", "Beta", null, "oauth", "accounts")));
+
+  @Test
+  public void verify_SnapshotKeepsBanksAndIndexes() throws Exception {
+    Path path = temporaryFolder.getRoot().toPath().resolve("catalog.snapshot");
+    CatalogSnapshot.write(path, SOURCE_CHECKSUM, bankIndex);
+    BankIndex read = CatalogSnapshot.read(path, SOURCE_CHECKSUM);
+    Assert.assertEquals(read.size(), 4);
+    Assert.assertEquals(ids(read.getBanks()), List.of("A1", "B2", "C3", "D4"));
+    Assert.assertEquals(read.getBanks().get(1).getName(), "Bänk Ø");
+    Assert.assertEquals(read.getBanks().get(1).getProducts(), List.of("accounts", "credit-cards"));
+    Assert.assertNull(read.getBanks().get(2).getName());
+    Assert.assertNull(read.getBanks().get(2).getProducts());
+    Assert.assertEquals(ids(read.compile(Map.of("product", List.of("accounts"), "auth", List.of("oauth")), ALL_FILTERS)
+        .page(-1, 0, 10).getBanks()), List.of("A1", "D4"));
+    Assert.assertEquals(ids(read.compile(Map.of("name", List.of("Beta")), ALL_FILTERS).page(-1, 0, 10).getBanks()),
+        List.of("D4"));
+  }
+
+  @Test(expected = IOException.class)
+  public void verify_SnapshotOfOtherSourceIsNotUsed() throws Exception {
+    Path path = temporaryFolder.getRoot().toPath().resolve("catalog.snapshot");
+    CatalogSnapshot.write(path, SOURCE_CHECKSUM, bankIndex);
+    CatalogSnapshot.read(path, SOURCE_CHECKSUM + 1);
+  }
+
+  @Test
+  public void verify_CorruptSnapshotIsNotUsed() throws Exception {
+    Path path = temporaryFolder.getRoot().toPath().resolve("catalog.snapshot");
+    CatalogSnapshot.write(path, SOURCE_CHECKSUM, bankIndex);
+    byte[] bytes = Files.readAllBytes(path);
+    bytes[bytes.length / 2] ^= 1;
+    Files.write(path, bytes);
+    try {
+      CatalogSnapshot.read(path, SOURCE_CHECKSUM);
+      Assert.fail("Snapshot with a flipped bit must not be read");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getMessage().contains("corrupt"));
+    }
+    Files.write(path, new byte[]{1, 2, 3});
+    try {
+      CatalogSnapshot.read(path, SOURCE_CHECKSUM);
+      Assert.fail("Truncated snapshot must not be read");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getMessage().contains("truncated"));
+    }
+  }
+
+  private static List<String> ids(List<BankDetails> banks) {
+    return banks.stream().map(BankDetails::getId).collect(Collectors.toList());
+  }
+
+  private static BankDetails bank(String id, String name, String countryCode, String auth, String... products) {
+    BankDetails bankDetails = new BankDetails();
+    bankDetails.setId(id);
+    bankDetails.setName(name);
+    bankDetails.setCountryCode(countryCode);
+    bankDetails.setAuth(auth);
+    bankDetails.setProducts(products.length == 0 ? null : new ArrayList<>(List.of(products)));
+    return bankDetails;
+  }
+}
@@ -0,0 +1,91 @@
+package io.bankbridge.integration;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.bankbridge.handler.BankQuery;
+import io.bankbridge.handler.BanksRemoteCalls;
+import io.bankbridge.response.RenderedPage;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+public class AsyncBanksHandlerTest {
+
+  private static final long DEADLINE_MILLIS = 3000;
+
+  private final CompletableFuture<RenderedPage> page = new CompletableFuture<>();
+  private final ThreadPool threadPool = mock(ThreadPool.class);
+  private final AsyncContext asyncContext = mock(AsyncContext.class);
+  private final HttpServletRequest request = mock(HttpServletRequest.class);
+  private final HttpServletResponse response = mock(HttpServletResponse.class);
+  private AsyncBanksHandler handler;
+
+  @Before
+  public void start() throws Exception {
+    BanksRemoteCalls banksRemoteCalls = mock(BanksRemoteCalls.class);
+    when(banksRemoteCalls.renderAsync(any(BankQuery.class))).thenReturn(page);
+    when(request.getMethod()).thenReturn("GET");
+    when(request.getDispatcherType()).thenReturn(DispatcherType.REQUEST);
+    when(request.getParameterMap()).thenReturn(Map.of());
+    when(request.startAsync()).thenReturn(asyncContext);
+    when(asyncContext.getResponse()).thenReturn(response);
+    when(response.getOutputStream()).thenReturn(mock(ServletOutputStream.class));
+    handler = new AsyncBanksHandler(banksRemoteCalls, DEADLINE_MILLIS);
+    handler.setServer(new Server(threadPool));
+    handler.handle(AsyncBanksHandler.REMOTE_BANKS_PATH, mock(Request.class), request, response);
+  }
+
+  @Test
+  public void verify_AsyncTimeoutFollowsTheDeadline() {
+    ArgumentCaptor<Long> timeout = ArgumentCaptor.forClass(Long.class);
+    verify(asyncContext).setTimeout(timeout.capture());
+    Assert.assertTrue(timeout.getValue() > DEADLINE_MILLIS);
+  }
+
+  @Test
+  public void verify_TimedOutRequestIsAnsweredOnce() throws Exception {
+    ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+    verify(asyncContext).addListener(listener.capture());
+    listener.getValue().onTimeout(new AsyncEvent(asyncContext));
+    verify(response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    verify(asyncContext).complete();
+
+    //Page ready after the timeout is not written any more
+    doAnswer(invocation -> {
+      invocation.<Runnable>getArgument(0).run();
+      return null;
+    }).when(threadPool).execute(any(Runnable.class));
+    page.complete(new RenderedPage(new byte[0], null, null));
+    verify(response, never()).setStatus(HttpServletResponse.SC_OK);
+    verify(asyncContext).complete();
+  }
+
+  @Test
+  public void verify_RejectedWriteIsAnsweredWithUnavailable() throws Exception {
+    doThrow(new RejectedExecutionException("Pool is full")).when(threadPool).execute(any(Runnable.class));
+    page.complete(null);
+    verify(response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    verify(asyncContext).complete();
+  }
+}
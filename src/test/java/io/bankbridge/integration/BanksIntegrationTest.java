@@ -1,9 +1,16 @@
 package io.bankbridge.integration;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.any;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
 import io.bankbridge.BaseTest;
+import io.bankbridge.handler.BanksCacheBased;
+import io.bankbridge.handler.BanksReloader;
 import io.bankbridge.response.BankDetails;
 import org.junit.Assert;
 import org.junit.Rule;
@@ -12,7 +19,15 @@ import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Since this is lightweight component i just created integrations tests to check the entire flow.
@@ -30,6 +45,9 @@ public class BanksIntegrationTest extends BaseTest {
   private static final ObjectMapper mapper = new ObjectMapper();
   private static final String BASE_REMOTE_ALL_BANKS_URL = "/v2/banks/all";
   private static final String BASE_STATIC_ALL_BANKS_URL = "/v1/banks/all";
+  private static final String BASE_REMOTE_STREAM_BANKS_URL = "/v2/banks/stream";
+  //Admin token of the test banks-v2-config.json
+  private static final String ADMIN_TOKEN = "test-admin-token";
 
 
 
@@ -66,7 +84,7 @@ public class BanksIntegrationTest extends BaseTest {
   }
 
   /**
-   *Test working as expected but will take much time due to server not available
+   * Remote server is not available so every bank fails and the response is empty
    * */
   @Test
   public void testRemoteBanks_WithErrorFromBanks() throws IOException {
@@ -76,6 +94,77 @@ public class BanksIntegrationTest extends BaseTest {
     Assert.assertEquals(bankDetails.size(), 0);
   }
 
+  /**
+   * Credit Sweets answers after the per bank timeout, so response should not wait for it
+   * and it should be marked as unavailable in the header
+   */
+  @Test
+  public void testRemoteBanks_WithSlowBank_returnsPartialResultWithinDeadline() throws IOException {
+    generateOneBankMatchMockResponse();
+    stubFor(any(urlPathEqualTo("/cs"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withFixedDelay(10000)
+            .withBody("{\"bic\":\"CUPIDATATSP1XXX\",\"name\":\"Credit Sweets\"}")));
+    long start = System.currentTimeMillis();
+    TestResponse response = request(BASE_REMOTE_ALL_BANKS_URL);
+    long elapsed = System.currentTimeMillis() - start;
+    List<BankDetails> bankDetails = mapper.readValue(response.body, new TypeReference<List<BankDetails>>(){});
+    Assert.assertEquals(bankDetails.size(), 1);
+    Assert.assertEquals(bankDetails.get(0).getId(), "DOLORENOR2XXX");
+    Assert.assertTrue(elapsed < 10000);
+    String unavailableBanks = response.headers.firstValue(BanksController.UNAVAILABLE_BANKS_HEADER).orElse("");
+    Assert.assertTrue(unavailableBanks.contains("Credit Sweets"));
+    Assert.assertFalse(unavailableBanks.contains("Royal Bank of Fun"));
+    Assert.assertEquals(response.status, 200);
+  }
+
+  @Test
+  public void testRemoteBanksStream_withSuccess_returnsEveryBankPerLine() throws IOException {
+    generateMockServer();
+    TestResponse response = request(BASE_REMOTE_STREAM_BANKS_URL);
+    Assert.assertEquals(response.status, 200);
+    Assert.assertEquals(response.headers.firstValue("Content-Type").orElse(""), "application/x-ndjson");
+    String[] lines = response.body.split("\n");
+    Assert.assertEquals(lines.length, 20);
+    Assert.assertEquals(mapper.readValue(lines[0], BankDetails.class).getId(), "PARIATURDEU0XXX");
+  }
+
+  @Test
+  public void testRemoteBanksStream_withFilter_andUnavailableBanksInLastLine() throws IOException {
+    generateOneBankMatchMockResponse();
+    TestResponse response = request(BASE_REMOTE_STREAM_BANKS_URL + "?countrycode=GB");
+    String[] lines = response.body.split("\n");
+    Assert.assertEquals(lines.length, 2);
+    Assert.assertEquals(mapper.readValue(lines[0], BankDetails.class).getId(), "DOLORENOR2XXX");
+    Map<String, List<String>> unavailableBanks = mapper.readValue(lines[1],
+        new TypeReference<Map<String, List<String>>>(){});
+    Assert.assertEquals(unavailableBanks.get("unavailableBanks").size(), 19);
+  }
+
+  /**
+   * First bank should be written without waiting for Credit Sweets which answers only after the per bank timeout
+   */
+  @Test
+  public void testRemoteBanksStream_firstBankDoesNotWaitForSlowBank() throws Exception {
+    generateOneBankMatchMockResponse();
+    stubFor(any(urlPathEqualTo("/cs"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withFixedDelay(10000)
+            .withBody("{\"bic\":\"CUPIDATATSP1XXX\",\"name\":\"Credit Sweets\"}")));
+    HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:8082" + BASE_REMOTE_STREAM_BANKS_URL))
+        .build();
+    long start = System.currentTimeMillis();
+    HttpResponse<Stream<String>> response = HttpClient.newHttpClient()
+        .send(request, HttpResponse.BodyHandlers.ofLines());
+    Iterator<String> lines = response.body().iterator();
+    Assert.assertEquals(mapper.readValue(lines.next(), BankDetails.class).getId(), "DOLORENOR2XXX");
+    long firstLineElapsed = System.currentTimeMillis() - start;
+    Assert.assertTrue("First line took " + firstLineElapsed + " ms", firstLineElapsed < 1000);
+    Assert.assertTrue(lines.next().contains("Credit Sweets"));
+  }
+
   @Test
   public void testRemoteBanks_withInvalidPaginationQueryParam() {
     TestResponse response = request(BASE_REMOTE_ALL_BANKS_URL+"?pageNo=invalidnumber");
@@ -97,6 +186,65 @@ public class BanksIntegrationTest extends BaseTest {
     Assert.assertTrue(response.body.contains("Page size is not valid!"));
   }
 
+  /**
+   * Circuit breakers are disabled in test configuration so the endpoint returns empty details
+   */
+  @Test
+  public void testRemoteBanks_circuitBreakersEndpoint() {
+    TestResponse response = request("/v2/banks/circuit-breakers");
+    Assert.assertEquals(response.status, 200);
+    Assert.assertEquals(response.body, "{}");
+  }
+
+  @Test
+  public void testRemoteBanks_limitersEndpoint() {
+    TestResponse response = request("/v2/banks/limiters");
+    Assert.assertEquals(response.status, 200);
+    Assert.assertEquals(response.body, "{}");
+  }
+
+  @Test
+  public void testMetrics_afterRemoteCall_returnsPrometheusText() {
+    generateMockServer();
+    request(BASE_REMOTE_ALL_BANKS_URL);
+    TestResponse response = request("/metrics");
+    Assert.assertEquals(response.status, 200);
+    Assert.assertTrue(response.headers.firstValue("Content-Type").orElse("").startsWith("text/plain"));
+    Assert.assertTrue(response.body.contains("# TYPE bankbridge_remote_call_duration_seconds summary"));
+    Assert.assertTrue(response.body.contains(
+        "bankbridge_remote_calls_total{bank=\"http://localhost:1234/rbf\",result=\"success\"}"));
+    Assert.assertTrue(response.body.contains("bankbridge_fan_out_duration_seconds_count"));
+    Assert.assertTrue(response.body.contains("bankbridge_catalog_banks 20"));
+    Assert.assertTrue(response.body.contains("bankbridge_catalog_bytes "));
+    Assert.assertTrue(response.body.contains("bankbridge_catalog_max_banks 1000000"));
+    Assert.assertTrue(response.body.contains("bankbridge_catalog_load_bytes "));
+  }
+
+  @Test
+  public void testReload_publishesNewVersionsAndKeepsServing() throws IOException {
+    TestResponse first = request("POST", "/admin/reload", BanksReloader.ADMIN_TOKEN_HEADER, ADMIN_TOKEN);
+    Assert.assertEquals(first.status, 200);
+    Map<String, Long> firstVersions = mapper.readValue(first.body, new TypeReference<Map<String, Long>>(){});
+    Map<String, Long> secondVersions = mapper.readValue(
+        request("POST", "/admin/reload", BanksReloader.ADMIN_TOKEN_HEADER, ADMIN_TOKEN).body,
+        new TypeReference<Map<String, Long>>(){});
+    Assert.assertEquals(secondVersions.get("staticBanksVersion").longValue(),
+        firstVersions.get("staticBanksVersion") + 1);
+    Assert.assertEquals(secondVersions.get("remoteBanksVersion").longValue(),
+        firstVersions.get("remoteBanksVersion") + 1);
+    List<BankDetails> bankDetails = mapper.readValue(request(BASE_STATIC_ALL_BANKS_URL + "?size=20").body,
+        new TypeReference<List<BankDetails>>(){});
+    Assert.assertEquals(bankDetails.size(), 20);
+  }
+
+  @Test
+  public void testReload_withoutAdminToken() {
+    long version = BanksCacheBased.getCatalogVersion();
+    Assert.assertEquals(request("POST", "/admin/reload").status, 401);
+    Assert.assertEquals(request("POST", "/admin/reload", BanksReloader.ADMIN_TOKEN_HEADER, "wrong").status, 401);
+    Assert.assertEquals(BanksCacheBased.getCatalogVersion(), version);
+  }
+
   @Test
   public void testBanks_withNotFoundError() {
     TestResponse response = request("/v3/banks/all");
@@ -110,9 +258,9 @@ public class BanksIntegrationTest extends BaseTest {
     List<BankDetails> bankDetails = mapper.readValue(response.body, new TypeReference<List<BankDetails>>(){});
     Assert.assertEquals(bankDetails.size(), 5);
     BankDetails bankDetail = bankDetails.get(0);
-    Assert.assertEquals(bankDetail.getId(), "DOLORENOR9XXX");
-    Assert.assertEquals(bankDetail.getName(), "Bank Dolores");
-    Assert.assertEquals(bankDetail.getCountryCode(), "NO");
+    Assert.assertEquals(bankDetail.getId(), "ANIMDEU7XXX");
+    Assert.assertEquals(bankDetail.getName(), "Animat");
+    Assert.assertEquals(bankDetail.getCountryCode(), "DE");
     Assert.assertEquals(response.status, 200);
   }
 
@@ -182,4 +330,39 @@ public class BanksIntegrationTest extends BaseTest {
     Assert.assertTrue(response.body.contains("Page size is not valid!"));
   }
 
-}
\ No newline at end of file
+
+  @Test
+  public void testStaticBanks_success_withCursor() throws IOException {
+    TestResponse first = request(BASE_STATIC_ALL_BANKS_URL + "?size=15");
+    String cursor = first.headers.firstValue(BanksController.NEXT_CURSOR_HEADER).orElse(null);
+    Assert.assertNotNull(cursor);
+    TestResponse second = request(BASE_STATIC_ALL_BANKS_URL + "?size=15&cursor=" + cursor);
+    List bankDetails = mapper.readValue(second.body, List.class);
+    Assert.assertEquals(bankDetails.size(), 5);
+    Assert.assertFalse(second.headers.firstValue(BanksController.NEXT_CURSOR_HEADER).isPresent());
+    Assert.assertEquals(second.status, 200);
+  }
+
+  @Test
+  public void testStaticBanks_success_withMultipleCountryCodes() throws IOException {
+    TestResponse response = request(BASE_STATIC_ALL_BANKS_URL + "?countrycode=de,ch&size=10");
+    List<Map<String, Object>> bankDetails = mapper.readValue(response.body, List.class);
+    Assert.assertEquals(response.status, 200);
+    Assert.assertEquals(bankDetails.size(), 5);
+    bankDetails.forEach(bank -> Assert.assertTrue(Set.of("DE", "CH").contains(bank.get("countryCode"))));
+  }
+
+  @Test
+  public void testStaticBanks_Error_withInvalidCursor() {
+    TestResponse response = request(BASE_STATIC_ALL_BANKS_URL + "?cursor=invalid!");
+    Assert.assertEquals(response.status, 400);
+    Assert.assertTrue(response.body.contains("Cursor is not valid!"));
+  }
+
+  @Test
+  public void testRemoteBanks_Error_withInvalidCursor() {
+    TestResponse response = request(BASE_REMOTE_ALL_BANKS_URL + "?cursor=AA");
+    Assert.assertEquals(response.status, 400);
+    Assert.assertTrue(response.body.contains("Cursor is not valid!"));
+  }
+}
@@ -0,0 +1,52 @@
+package io.bankbridge.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void verify_QuantilesAreWithinBucketPrecision() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int millis = 1; millis <= 100; millis++) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+    Assert.assertEquals(histogram.getCount(), 100);
+    assertWithinPrecision(histogram.getValueAtQuantile(0.5), 50_000);
+    assertWithinPrecision(histogram.getValueAtQuantile(0.95), 95_000);
+    assertWithinPrecision(histogram.getValueAtQuantile(1), 100_000);
+  }
+
+  @Test
+  public void verify_QuantilesOfSeveralHistogramsTogether() {
+    LatencyHistogram previous = new LatencyHistogram();
+    LatencyHistogram current = new LatencyHistogram();
+    for (int millis = 1; millis <= 100; millis++) {
+      (millis <= 50 ? previous : current).record(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+    assertWithinPrecision(LatencyHistogram.getValueAtQuantile(0.5, previous, current), 50_000);
+    assertWithinPrecision(LatencyHistogram.getValueAtQuantile(0.95, previous, current), 95_000);
+    Assert.assertEquals(LatencyHistogram.getValueAtQuantile(0.95, current), current.getValueAtQuantile(0.95));
+  }
+
+  @Test
+  public void verify_EmptyHistogramReturnsZero() {
+    Assert.assertEquals(new LatencyHistogram().getValueAtQuantile(0.99), 0);
+  }
+
+  @Test
+  public void verify_BucketBoundsContainTheirValues() {
+    for (long micros : new long[]{0, 15, 16, 17, 1000, 123_456, 1L << 40}) {
+      int index = LatencyHistogram.bucketIndex(micros);
+      Assert.assertTrue(LatencyHistogram.bucketUpperBound(index) >= micros);
+      Assert.assertTrue(index == 0 || LatencyHistogram.bucketUpperBound(index - 1) < micros);
+    }
+  }
+
+  private static void assertWithinPrecision(long actualMicros, long expectedMicros) {
+    Assert.assertTrue("Value was " + actualMicros,
+        actualMicros >= expectedMicros && actualMicros <= expectedMicros * 1.125);
+  }
+}
@@ -0,0 +1,33 @@
+package io.bankbridge.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class PrometheusWriterTest {
+
+  @Test
+  public void verify_SamplesAreWrittenWithLabels() {
+    String text = new PrometheusWriter()
+        .family("calls_total", PrometheusWriter.COUNTER, "Calls")
+        .sample("calls_total", 3, "bank", "a\"b", "result", "success")
+        .sample("calls_total", 0.5)
+        .toString();
+    Assert.assertEquals(text, "# HELP calls_total Calls\n"
+        + "# TYPE calls_total counter\n"
+        + "calls_total{bank=\"a\\\"b\",result=\"success\"} 3\n"
+        + "calls_total 0.5\n");
+  }
+
+  @Test
+  public void verify_SummaryIsWrittenInSeconds() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(TimeUnit.SECONDS.toNanos(2));
+    String text = new PrometheusWriter().summary("duration_seconds", histogram, "bank", "a").toString();
+    Assert.assertTrue(text.contains("duration_seconds{bank=\"a\",quantile=\"0.5\"} 2"));
+    Assert.assertTrue(text.contains("duration_seconds{bank=\"a\",quantile=\"0.999\"} 2"));
+    Assert.assertTrue(text.contains("duration_seconds_sum{bank=\"a\"} 2\n"));
+    Assert.assertTrue(text.contains("duration_seconds_count{bank=\"a\"} 1\n"));
+  }
+}
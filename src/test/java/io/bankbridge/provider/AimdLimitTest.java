@@ -0,0 +1,41 @@
+package io.bankbridge.provider;
+
+import io.bankbridge.config.RemoteBanksConfig;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AimdLimitTest {
+
+  private AimdLimit limit;
+
+  @Before
+  public void start() {
+    RemoteBanksConfig.Limiter config = new RemoteBanksConfig.Limiter();
+    config.setInitialLimit(10);
+    config.setMinLimit(2);
+    config.setMaxLimitPerBank(11);
+    config.setBackoffRatio(0.5);
+    config.setRttTolerance(2);
+    limit = new AimdLimit(config);
+  }
+
+  @Test
+  public void verify_LimitGrowsOnlyWhileInUse() {
+    Assert.assertEquals(limit.onSample(100, 1, false), 10);
+    Assert.assertEquals(limit.onSample(100, 5, false), 11);
+    //Capped by maxLimitPerBank
+    Assert.assertEquals(limit.onSample(100, 11, false), 11);
+  }
+
+  @Test
+  public void verify_LimitIsDecreasedOnDropAndSlowResponse() {
+    limit.onSample(100, 5, false);
+    Assert.assertEquals(limit.onSample(150, 5, true), 5);
+    Assert.assertEquals(limit.onSample(150, 5, false), 6);
+    //Above 2 times the lowest RTT
+    Assert.assertEquals(limit.onSample(201, 5, false), 3);
+    //Capped by minLimit
+    Assert.assertEquals(limit.onSample(1000, 5, false), 2);
+  }
+}
@@ -0,0 +1,100 @@
+package io.bankbridge.provider;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.bankbridge.config.RemoteBanksConfig;
+import io.bankbridge.model.BankModel;
+import io.bankbridge.model.RemoteBanksResult;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CachingRemoteBanksProviderTest {
+
+  private static final String BANK_URI = "http://localhost:1234/rbf";
+
+  private RemoteBanksProvider remoteBanksProvider;
+
+  private CachingRemoteBanksProvider cachingRemoteBanksProvider;
+
+  private final AtomicLong clock = new AtomicLong();
+
+  @Before
+  public void start() {
+    remoteBanksProvider = mock(RemoteBanksProvider.class);
+    RemoteBanksConfig.Cache config = new RemoteBanksConfig.Cache();
+    config.setFreshMillis(1000);
+    config.setStaleMillis(5000);
+    cachingRemoteBanksProvider = new CachingRemoteBanksProvider(remoteBanksProvider, config, clock::get);
+  }
+
+  @Test
+  public void verify_FreshEntryIsServedWithoutRemoteCall() {
+    when(remoteBanksProvider.getRemoteBanksDetails(List.of(BANK_URI))).thenReturn(getMockRemoteBank("v1"));
+    cachingRemoteBanksProvider.getRemoteBanksDetails(List.of(BANK_URI));
+    clock.set(1000);
+    RemoteBanksResult result = cachingRemoteBanksProvider.getRemoteBanksDetails(List.of(BANK_URI));
+    Assert.assertEquals(result.getBank(BANK_URI).getName(), "v1");
+    verify(remoteBanksProvider, times(1)).getRemoteBanksDetails(List.of(BANK_URI));
+  }
+
+  @Test
+  public void verify_StaleEntryIsServedAndRefreshedOnlyOnce() throws Exception {
+    when(remoteBanksProvider.getRemoteBanksDetails(List.of(BANK_URI))).thenReturn(getMockRemoteBank("v1"));
+    cachingRemoteBanksProvider.getRemoteBanksDetails(List.of(BANK_URI));
+
+    //Holding the background refresh until all stale reads are done
+    CountDownLatch refreshLatch = new CountDownLatch(1);
+    when(remoteBanksProvider.getRemoteBanksDetails(List.of(BANK_URI))).thenAnswer(invocation -> {
+      refreshLatch.await();
+      return getMockRemoteBank("v2");
+    });
+    clock.set(2000);
+    for (int i = 0; i < 10; i++) {
+      RemoteBanksResult result = cachingRemoteBanksProvider.getRemoteBanksDetails(List.of(BANK_URI));
+      Assert.assertEquals(result.getBank(BANK_URI).getName(), "v1");
+    }
+    refreshLatch.countDown();
+    //One initial call plus one background refresh
+    verify(remoteBanksProvider, timeout(1000).times(2)).getRemoteBanksDetails(List.of(BANK_URI));
+    Thread.sleep(100);
+    RemoteBanksResult result = cachingRemoteBanksProvider.getRemoteBanksDetails(List.of(BANK_URI));
+    Assert.assertEquals(result.getBank(BANK_URI).getName(), "v2");
+  }
+
+  @Test
+  public void verify_ExpiredEntryIsFetchedInline() {
+    when(remoteBanksProvider.getRemoteBanksDetails(List.of(BANK_URI))).thenReturn(getMockRemoteBank("v1"));
+    cachingRemoteBanksProvider.getRemoteBanksDetails(List.of(BANK_URI));
+    when(remoteBanksProvider.getRemoteBanksDetails(List.of(BANK_URI))).thenReturn(getMockRemoteBank("v2"));
+    clock.set(6001);
+    RemoteBanksResult result = cachingRemoteBanksProvider.getRemoteBanksDetails(List.of(BANK_URI));
+    Assert.assertEquals(result.getBank(BANK_URI).getName(), "v2");
+  }
+
+  @Test
+  public void verify_FailedBankIsNotCached() {
+    when(remoteBanksProvider.getRemoteBanksDetails(List.of(BANK_URI)))
+        .thenReturn(new RemoteBanksResult(Map.of(), List.of(BANK_URI)));
+    RemoteBanksResult result = cachingRemoteBanksProvider.getRemoteBanksDetails(List.of(BANK_URI));
+    Assert.assertEquals(result.getUnavailableUris(), List.of(BANK_URI));
+    cachingRemoteBanksProvider.getRemoteBanksDetails(List.of(BANK_URI));
+    verify(remoteBanksProvider, times(2)).getRemoteBanksDetails(List.of(BANK_URI));
+  }
+
+  private RemoteBanksResult getMockRemoteBank(String name) {
+    BankModel bankModel = new BankModel();
+    bankModel.setBic("DOLORENOR2XXX");
+    bankModel.setName(name);
+    return new RemoteBanksResult(Map.of(BANK_URI, bankModel), List.of());
+  }
+}
@@ -0,0 +1,78 @@
+package io.bankbridge.provider;
+
+import io.bankbridge.config.RemoteBanksConfig;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CircuitBreakerTest {
+
+  private final AtomicLong clock = new AtomicLong();
+
+  private CircuitBreaker circuitBreaker;
+
+  @Before
+  public void start() {
+    RemoteBanksConfig.CircuitBreaker config = new RemoteBanksConfig.CircuitBreaker();
+    config.setWindowSize(4);
+    config.setMinimumCalls(4);
+    config.setFailureRateThreshold(50);
+    config.setOpenMillis(1000);
+    circuitBreaker = new CircuitBreaker(config, clock::get);
+  }
+
+  @Test
+  public void verify_CircuitOpensWhenFailureRateReachesThreshold() {
+    circuitBreaker.onSuccess();
+    circuitBreaker.onSuccess();
+    circuitBreaker.onFailure();
+    //Minimum calls are not reached yet
+    Assert.assertEquals(circuitBreaker.getStatus().getState(), CircuitBreaker.State.CLOSED);
+    circuitBreaker.onFailure();
+    Assert.assertEquals(circuitBreaker.getStatus().getState(), CircuitBreaker.State.OPEN);
+    Assert.assertEquals(circuitBreaker.getStatus().getFailureRate(), 50);
+    Assert.assertFalse(circuitBreaker.tryAcquire());
+  }
+
+  @Test
+  public void verify_OldCallsAreDroppedFromWindow() {
+    circuitBreaker.onFailure();
+    for (int i = 0; i < 4; i++) {
+      circuitBreaker.onSuccess();
+    }
+    Assert.assertEquals(circuitBreaker.getStatus().getFailureRate(), 0);
+    Assert.assertEquals(circuitBreaker.getStatus().getCalls(), 4);
+  }
+
+  @Test
+  public void verify_HalfOpenAllowsOneTrialAndClosesOnSuccess() {
+    openCircuit();
+    clock.set(1000);
+    Assert.assertTrue(circuitBreaker.tryAcquire());
+    Assert.assertEquals(circuitBreaker.getStatus().getState(), CircuitBreaker.State.HALF_OPEN);
+    Assert.assertFalse(circuitBreaker.tryAcquire());
+    circuitBreaker.onSuccess();
+    Assert.assertEquals(circuitBreaker.getStatus().getState(), CircuitBreaker.State.CLOSED);
+    Assert.assertTrue(circuitBreaker.tryAcquire());
+  }
+
+  @Test
+  public void verify_HalfOpenFailureOpensCircuitAgain() {
+    openCircuit();
+    clock.set(1000);
+    Assert.assertTrue(circuitBreaker.tryAcquire());
+    circuitBreaker.onFailure();
+    Assert.assertEquals(circuitBreaker.getStatus().getState(), CircuitBreaker.State.OPEN);
+    clock.set(1999);
+    Assert.assertFalse(circuitBreaker.tryAcquire());
+  }
+
+  private void openCircuit() {
+    for (int i = 0; i < 4; i++) {
+      circuitBreaker.onFailure();
+    }
+    Assert.assertEquals(circuitBreaker.getStatus().getState(), CircuitBreaker.State.OPEN);
+  }
+}
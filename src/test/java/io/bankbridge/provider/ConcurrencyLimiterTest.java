@@ -0,0 +1,99 @@
+package io.bankbridge.provider;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+public class ConcurrencyLimiterTest {
+
+  @Test
+  public void verify_CallsOverLimitWaitForRelease() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(2);
+    Assert.assertTrue(limiter.acquire().isDone());
+    Assert.assertTrue(limiter.acquire().isDone());
+    CompletableFuture<Void> waiter = limiter.acquire();
+    Assert.assertFalse(waiter.isDone());
+    Assert.assertEquals(limiter.getWaiting(), 1);
+
+    limiter.release();
+    Assert.assertTrue(waiter.isDone());
+    Assert.assertEquals(limiter.getInUse(), 2);
+    limiter.release();
+    limiter.release();
+    Assert.assertEquals(limiter.getInUse(), 0);
+  }
+
+  @Test
+  public void verify_CompletedWaiterIsSkipped() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(1);
+    limiter.acquire();
+    CompletableFuture<Void> timedOut = limiter.acquire();
+    CompletableFuture<Void> waiter = limiter.acquire();
+    timedOut.completeExceptionally(new TimeoutException());
+
+    limiter.release();
+    Assert.assertTrue(waiter.isDone());
+    Assert.assertFalse(waiter.isCompletedExceptionally());
+    Assert.assertEquals(limiter.getInUse(), 1);
+    Assert.assertEquals(limiter.getWaiting(), 0);
+  }
+
+  @Test
+  public void verify_CallsAboveQueueAreRejected() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1);
+    limiter.acquire();
+    Assert.assertFalse(limiter.acquire().isDone());
+    CompletableFuture<Void> rejected = limiter.acquire();
+    Assert.assertTrue(rejected.isCompletedExceptionally());
+    rejected.exceptionally(exception -> {
+      Assert.assertTrue(exception instanceof RejectedExecutionException);
+      return null;
+    });
+    Assert.assertEquals(limiter.getStatus().getRejected(), 1);
+  }
+
+  @Test
+  public void verify_TimedOutWaiterLeavesTheQueue() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1);
+    limiter.acquire();
+    CompletableFuture<Void> timedOut = limiter.acquire();
+    timedOut.completeExceptionally(new TimeoutException());
+    Assert.assertEquals(limiter.getWaiting(), 0);
+
+    CompletableFuture<Void> cancelled = limiter.acquire();
+    Assert.assertFalse(cancelled.isCompletedExceptionally());
+    cancelled.cancel(false);
+    Assert.assertEquals(limiter.getWaiting(), 0);
+
+    CompletableFuture<Void> waiter = limiter.acquire();
+    Assert.assertFalse(waiter.isDone());
+    Assert.assertEquals(limiter.getStatus().getRejected(), 0);
+    limiter.release();
+    Assert.assertTrue(waiter.isDone());
+    Assert.assertEquals(limiter.getInUse(), 1);
+  }
+
+  @Test
+  public void verify_LimitChangesAreAppliedToWaiters() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(1);
+    limiter.acquire();
+    CompletableFuture<Void> first = limiter.acquire();
+    CompletableFuture<Void> second = limiter.acquire();
+
+    limiter.setLimit(2);
+    Assert.assertTrue(first.isDone());
+    Assert.assertFalse(second.isDone());
+
+    //Both calls in use are above the decreased limit, so the first release doesn't hand over the slot
+    limiter.setLimit(1);
+    limiter.release();
+    Assert.assertFalse(second.isDone());
+    limiter.release();
+    Assert.assertTrue(second.isDone());
+    Assert.assertEquals(limiter.getStatus().getIncreases(), 1);
+    Assert.assertEquals(limiter.getStatus().getDecreases(), 1);
+  }
+}
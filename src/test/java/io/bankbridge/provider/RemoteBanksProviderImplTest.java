@@ -0,0 +1,141 @@
+package io.bankbridge.provider;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.findAll;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import io.bankbridge.config.RemoteBanksConfig;
+import io.bankbridge.model.RemoteBanksResult;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tests for the remote calls against wiremock stubs, running on separate port from the integration tests.
+ */
+public class RemoteBanksProviderImplTest {
+
+  private static final String BANK_URI = "http://localhost:1235/rbf";
+  private static final String CS_URI = "http://localhost:1235/cs";
+
+  @Rule
+  public WireMockRule wireMockRule = new WireMockRule(1235);
+
+  private RemoteBanksProviderImpl remoteBanksProvider;
+
+  @Before
+  public void start() {
+    RemoteBanksConfig config = new RemoteBanksConfig();
+    config.getTimeouts().setPerBankMillis(5000);
+    config.getTimeouts().setDeadlineMillis(10000);
+    remoteBanksProvider = new RemoteBanksProviderImpl(config);
+  }
+
+  /**
+   * Bank with invalid response is reported as unavailable without failing the other banks
+   */
+  @Test
+  public void verify_InvalidResponseIsReportedAsUnavailable() {
+    stubFor(get(urlPathEqualTo("/rbf"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withBody("{\"bic\":\"DOLORENOR2XXX\",\"name\":\"Royal Bank of Fun\"}")));
+    stubFor(get(urlPathEqualTo("/cs"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withBody("not a json")));
+    RemoteBanksResult result = remoteBanksProvider.getRemoteBanksDetails(List.of(BANK_URI, CS_URI));
+    Assert.assertEquals(result.getBank(BANK_URI).getName(), "Royal Bank of Fun");
+    Assert.assertEquals(result.getUnavailableUris(), List.of(CS_URI));
+  }
+
+  /**
+   * Async variant completes at the deadline with the slow bank reported as unavailable
+   */
+  @Test
+  public void verify_AsyncResultCompletesAtDeadline() {
+    RemoteBanksConfig config = new RemoteBanksConfig();
+    config.getTimeouts().setPerBankMillis(5000);
+    config.getTimeouts().setDeadlineMillis(500);
+    RemoteBanksProviderImpl provider = new RemoteBanksProviderImpl(config);
+    stubFor(get(urlPathEqualTo("/rbf"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withBody("{\"bic\":\"DOLORENOR2XXX\",\"name\":\"Royal Bank of Fun\"}")));
+    stubFor(get(urlPathEqualTo("/cs"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withFixedDelay(3000)
+            .withBody("{\"bic\":\"CUPIDATATSP1XXX\",\"name\":\"Credit Sweets\"}")));
+    long start = System.currentTimeMillis();
+    RemoteBanksResult result = provider.getRemoteBanksDetailsAsync(List.of(BANK_URI, CS_URI)).join();
+    Assert.assertTrue(System.currentTimeMillis() - start < 3000);
+    Assert.assertEquals(result.getBank(BANK_URI).getName(), "Royal Bank of Fun");
+    Assert.assertEquals(result.getUnavailableUris(), List.of(CS_URI));
+  }
+
+  /**
+   * Second call is sent as conditional GET and 304 response reuses the bank decoded from the first response
+   */
+  @Test
+  public void verify_NotModifiedResponseReusesPreviousBank() {
+    stubFor(get(urlPathEqualTo("/rbf"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("ETag", "\"v1\"")
+            .withBody("{\"bic\":\"DOLORENOR2XXX\",\"name\":\"Royal Bank of Fun\"}")));
+    stubFor(get(urlPathEqualTo("/rbf"))
+        .atPriority(1)
+        .withHeader("If-None-Match", equalTo("\"v1\""))
+        .willReturn(aResponse()
+            .withStatus(304)));
+    RemoteBanksResult first = remoteBanksProvider.getRemoteBanksDetails(List.of(BANK_URI));
+    RemoteBanksResult second = remoteBanksProvider.getRemoteBanksDetails(List.of(BANK_URI));
+    Assert.assertSame(second.getBank(BANK_URI), first.getBank(BANK_URI));
+    Assert.assertEquals(
+        findAll(getRequestedFor(urlPathEqualTo("/rbf")).withHeader("If-None-Match", equalTo("\"v1\""))).size(), 1);
+  }
+
+  /**
+   * Hundreds of concurrent requests while the bank is answering slowly should join the running call
+   * instead of calling the bank again.
+   */
+  @Test
+  public void verify_ConcurrentRequestsAreCoalesced() throws Exception {
+    stubFor(get(urlPathEqualTo("/rbf"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withFixedDelay(1000)
+            .withBody("{\"bic\":\"DOLORENOR2XXX\",\"name\":\"Royal Bank of Fun\"}")));
+    int concurrentRequests = 300;
+    ExecutorService executor = Executors.newFixedThreadPool(concurrentRequests);
+    CountDownLatch startLatch = new CountDownLatch(1);
+    List<Future<RemoteBanksResult>> results = new ArrayList<>();
+    for (int i = 0; i < concurrentRequests; i++) {
+      results.add(executor.submit(() -> {
+        startLatch.await();
+        return remoteBanksProvider.getRemoteBanksDetails(List.of(BANK_URI));
+      }));
+    }
+    startLatch.countDown();
+    for (Future<RemoteBanksResult> result : results) {
+      Assert.assertEquals(result.get().getBank(BANK_URI).getBic(), "DOLORENOR2XXX");
+    }
+    executor.shutdown();
+    int remoteHits = findAll(getRequestedFor(urlPathEqualTo("/rbf"))).size();
+    Assert.assertTrue("Remote bank was called " + remoteHits + " times", remoteHits <= 3);
+  }
+}
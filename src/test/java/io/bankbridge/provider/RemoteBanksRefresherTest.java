@@ -0,0 +1,134 @@
+package io.bankbridge.provider;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.bankbridge.config.RemoteBanksConfig;
+import io.bankbridge.model.BankModel;
+import io.bankbridge.model.RemoteBanksResult;
+import io.bankbridge.response.BankDetails;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class RemoteBanksRefresherTest {
+
+  private static final String RBF_URI = "http://localhost:1234/rbf";
+  private static final String CS_URI = "http://localhost:1234/cs";
+
+  private RemoteBanksProvider remoteBanksProvider;
+
+  private RemoteBanksRefresher remoteBanksRefresher;
+
+  @Before
+  public void start() {
+    remoteBanksProvider = mock(RemoteBanksProvider.class);
+    Map<String, String> banks = new LinkedHashMap<>();
+    banks.put("Royal Bank of Fun", RBF_URI);
+    banks.put("Credit Sweets", CS_URI);
+    RemoteBanksConfig.Refresher config = new RemoteBanksConfig.Refresher();
+    //Polling is triggered manually in the tests
+    config.setIntervalMillis(60000);
+    remoteBanksRefresher = new RemoteBanksRefresher(remoteBanksProvider, banks, RemoteBanksRefresherTest::mapper,
+        config);
+  }
+
+  @After
+  public void stop() {
+    remoteBanksRefresher.stop();
+  }
+
+  @Test
+  public void verify_InitialSnapshotIsSortedAndMarksUnavailableBanks() {
+    when(remoteBanksProvider.getRemoteBanksDetails(Mockito.any()))
+        .thenReturn(new RemoteBanksResult(Map.of(RBF_URI, bank("DOLORENOR2XXX")), List.of(CS_URI)));
+    remoteBanksRefresher.start();
+    RemoteBanksSnapshot snapshot = remoteBanksRefresher.getSnapshot();
+    Assert.assertEquals(snapshot.getBanks().size(), 1);
+    Assert.assertEquals(snapshot.getUnavailableBanks(), List.of("Credit Sweets"));
+
+    when(remoteBanksProvider.getRemoteBanksDetails(List.of(CS_URI)))
+        .thenReturn(new RemoteBanksResult(Map.of(CS_URI, bank("CUPIDATATSP1XXX")), List.of()));
+    remoteBanksRefresher.refresh(CS_URI);
+    snapshot = remoteBanksRefresher.getSnapshot();
+    Assert.assertEquals(snapshot.getBanks().get(0).getId(), "CUPIDATATSP1XXX");
+    Assert.assertEquals(snapshot.getBanks().get(1).getId(), "DOLORENOR2XXX");
+    Assert.assertTrue(snapshot.getUnavailableBanks().isEmpty());
+  }
+
+  @Test
+  public void verify_FailedPollKeepsLastKnownResult() {
+    when(remoteBanksProvider.getRemoteBanksDetails(Mockito.any()))
+        .thenReturn(new RemoteBanksResult(Map.of(RBF_URI, bank("DOLORENOR2XXX")), List.of(CS_URI)));
+    remoteBanksRefresher.start();
+    RemoteBanksSnapshot snapshot = remoteBanksRefresher.getSnapshot();
+
+    when(remoteBanksProvider.getRemoteBanksDetails(List.of(RBF_URI)))
+        .thenReturn(new RemoteBanksResult(Map.of(), List.of(RBF_URI)));
+    remoteBanksRefresher.refresh(RBF_URI);
+    Assert.assertSame(remoteBanksRefresher.getSnapshot(), snapshot);
+    Assert.assertEquals(remoteBanksRefresher.getSnapshot().getBanks().get(0).getId(), "DOLORENOR2XXX");
+  }
+
+  @Test
+  public void verify_UnchangedBankKeepsTheSnapshot() {
+    when(remoteBanksProvider.getRemoteBanksDetails(Mockito.any()))
+        .thenReturn(new RemoteBanksResult(Map.of(RBF_URI, bank("DOLORENOR2XXX")), List.of(CS_URI)));
+    remoteBanksRefresher.start();
+    RemoteBanksSnapshot snapshot = remoteBanksRefresher.getSnapshot();
+
+    //Equal bank decoded again from the remote response
+    when(remoteBanksProvider.getRemoteBanksDetails(List.of(RBF_URI)))
+        .thenReturn(new RemoteBanksResult(Map.of(RBF_URI, bank("DOLORENOR2XXX")), List.of()));
+    remoteBanksRefresher.refresh(RBF_URI);
+    Assert.assertSame(remoteBanksRefresher.getSnapshot(), snapshot);
+
+    BankModel renamed = bank("DOLORENOR2XXX");
+    renamed.setName("Bank Dolores");
+    when(remoteBanksProvider.getRemoteBanksDetails(List.of(RBF_URI)))
+        .thenReturn(new RemoteBanksResult(Map.of(RBF_URI, renamed), List.of()));
+    remoteBanksRefresher.refresh(RBF_URI);
+    Assert.assertEquals(remoteBanksRefresher.getSnapshot().getVersion(), snapshot.getVersion() + 1);
+  }
+
+  @Test
+  public void verify_SetBanksLoadsNewBanksAndDropsRemovedOnes() {
+    when(remoteBanksProvider.getRemoteBanksDetails(Mockito.any()))
+        .thenReturn(new RemoteBanksResult(Map.of(RBF_URI, bank("DOLORENOR2XXX"), CS_URI, bank("CUPIDATATSP1XXX")),
+            List.of()));
+    remoteBanksRefresher.start();
+    long version = remoteBanksRefresher.getSnapshot().getVersion();
+
+    String besUri = "http://localhost:1234/bes";
+    when(remoteBanksProvider.getRemoteBanksDetails(List.of(besUri)))
+        .thenReturn(new RemoteBanksResult(Map.of(besUri, bank("PARIATURDEU0XXX")), List.of()));
+    Map<String, String> banks = new LinkedHashMap<>();
+    banks.put("Royal Bank of Fun", RBF_URI);
+    banks.put("Banco de espiritu santo", besUri);
+    Assert.assertEquals(remoteBanksRefresher.setBanks(banks), version + 1);
+
+    RemoteBanksSnapshot snapshot = remoteBanksRefresher.getSnapshot();
+    Assert.assertEquals(snapshot.getBanks().size(), 2);
+    Assert.assertEquals(snapshot.getBanks().get(0).getId(), "DOLORENOR2XXX");
+    Assert.assertEquals(snapshot.getBanks().get(1).getId(), "PARIATURDEU0XXX");
+    Assert.assertTrue(snapshot.getUnavailableBanks().isEmpty());
+  }
+
+  private static BankModel bank(String bic) {
+    BankModel bankModel = new BankModel();
+    bankModel.setBic(bic);
+    return bankModel;
+  }
+
+  private static BankDetails mapper(BankModel bankModel) {
+    BankDetails bankDetails = new BankDetails();
+    bankDetails.setId(bankModel.getBic());
+    return bankDetails;
+  }
+}
@@ -0,0 +1,91 @@
+package io.bankbridge.provider;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.findAll;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import io.bankbridge.config.RemoteBanksConfig;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Tests for the limits and timeouts of the transport against wiremock stubs, running on separate port from the
+ * other tests.
+ */
+public class RemoteBanksTransportTest {
+
+  @Rule
+  public WireMockRule wireMockRule = new WireMockRule(1236);
+
+  private RemoteBanksTransport transport;
+
+  @Before
+  public void start() {
+    RemoteBanksConfig config = new RemoteBanksConfig();
+    config.getTransport().setMaxConnectionsPerHost(1);
+    transport = new RemoteBanksTransport(config);
+    stubFor(get(urlPathEqualTo("/slow"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withFixedDelay(1500)
+            .withBody("{}")));
+    stubFor(get(urlPathEqualTo("/fast"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withBody("{}")));
+  }
+
+  /**
+   * Call which gets no slot within its timeout is rejected without being sent, so it is not taken as a timeout
+   * of the bank
+   */
+  @Test
+  public void verify_TimeoutWaitingForSlotIsRejection() throws Exception {
+    CompletableFuture<HttpResponse<byte[]>> holder = transport.send(request("/slow", 5000));
+    CompletableFuture<HttpResponse<byte[]>> waiter = transport.send(request("/fast", 300));
+    Assert.assertTrue(cause(waiter) instanceof RejectedExecutionException);
+    Assert.assertEquals(holder.get().statusCode(), 200);
+    Assert.assertEquals(findAll(getRequestedFor(urlPathEqualTo("/fast"))).size(), 0);
+  }
+
+  /**
+   * Timeout of a call which was sent is counted from the send and fails the call with TimeoutException
+   */
+  @Test
+  public void verify_SentCallTimesOut() throws Exception {
+    long start = System.currentTimeMillis();
+    Assert.assertTrue(cause(transport.send(request("/slow", 300))) instanceof TimeoutException);
+    Assert.assertTrue(System.currentTimeMillis() - start < 1500);
+  }
+
+  private static HttpRequest request(String path, long timeoutMillis) {
+    return HttpRequest.newBuilder(URI.create("http://localhost:1236" + path))
+        .timeout(Duration.ofMillis(timeoutMillis))
+        .build();
+  }
+
+  private static Throwable cause(CompletableFuture<HttpResponse<byte[]>> response) throws Exception {
+    try {
+      response.get();
+      Assert.fail("Call should fail");
+      return null;
+    } catch (ExecutionException e) {
+      return e.getCause();
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package io.bankbridge.provider;
+
+import io.bankbridge.config.RemoteBanksConfig;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+public class RequestHedgerTest {
+
+  private static final String BANK_URI = "http://localhost:1234/rbf";
+  private static final Predicate<String> SUCCESSFUL = response -> !response.startsWith("error");
+
+  @Test
+  public void verify_SlowRequestIsHedgedAndHedgeWins() throws Exception {
+    RequestHedger requestHedger = new RequestHedger(hedgingConfig(1));
+    List<CompletableFuture<String>> attempts = new ArrayList<>();
+    CompletableFuture<String> result = requestHedger.send(BANK_URI, () -> newAttempt(attempts), SUCCESSFUL);
+
+    waitForAttempts(attempts, 2);
+    attempts.get(1).complete("hedge");
+    Assert.assertEquals(result.get(1, TimeUnit.SECONDS), "hedge");
+    Assert.assertEquals(requestHedger.getHedgesSent(), 1);
+    Assert.assertEquals(requestHedger.getHedgesWon(), 1);
+    //Losing attempt is not needed any more
+    Assert.assertTrue(attempts.get(0).isCancelled());
+  }
+
+  @Test
+  public void verify_ErrorAnswerDoesNotWin() throws Exception {
+    RequestHedger requestHedger = new RequestHedger(hedgingConfig(1));
+    List<CompletableFuture<String>> attempts = new ArrayList<>();
+    CompletableFuture<String> result = requestHedger.send(BANK_URI, () -> newAttempt(attempts), SUCCESSFUL);
+
+    waitForAttempts(attempts, 2);
+    attempts.get(1).complete("error 503");
+    Assert.assertFalse(result.isDone());
+    attempts.get(0).complete("primary");
+    Assert.assertEquals(result.get(1, TimeUnit.SECONDS), "primary");
+    Assert.assertEquals(requestHedger.getHedgesWon(), 0);
+  }
+
+  @Test
+  public void verify_ErrorAnswerIsUsedWhenNoAttemptSucceeded() throws Exception {
+    RequestHedger requestHedger = new RequestHedger(hedgingConfig(1));
+    List<CompletableFuture<String>> attempts = new ArrayList<>();
+    CompletableFuture<String> result = requestHedger.send(BANK_URI, () -> newAttempt(attempts), SUCCESSFUL);
+
+    waitForAttempts(attempts, 2);
+    attempts.get(0).complete("error 500");
+    attempts.get(1).completeExceptionally(new IllegalStateException());
+    Assert.assertEquals(result.get(1, TimeUnit.SECONDS), "error 500");
+  }
+
+  @Test
+  public void verify_ObservedDelayForgetsOldLatencies() throws Exception {
+    RemoteBanksConfig.Hedging config = hedgingConfig(1);
+    config.setDelayMillis(0);
+    config.setMinDelayMillis(1);
+    config.setMinSamples(1);
+    config.setWindowSeconds(1);
+    RequestHedger requestHedger = new RequestHedger(config);
+    requestHedger.send(BANK_URI, () -> CompletableFuture.completedFuture("primary"), SUCCESSFUL);
+
+    //Latency is recent, so the next request is hedged after the observed delay
+    List<CompletableFuture<String>> attempts = new ArrayList<>();
+    requestHedger.send(BANK_URI, () -> newAttempt(attempts), SUCCESSFUL);
+    waitForAttempts(attempts, 2);
+    attempts.forEach(attempt -> attempt.complete("error"));
+
+    //Both windows passed without a successful answer, so there are no samples to hedge by
+    Thread.sleep(2100);
+    List<CompletableFuture<String>> later = new ArrayList<>();
+    requestHedger.send(BANK_URI, () -> newAttempt(later), SUCCESSFUL);
+    Thread.sleep(200);
+    Assert.assertEquals(later.size(), 1);
+  }
+
+  @Test
+  public void verify_ResultFailsOnlyWhenAllAttemptsFailed() throws Exception {
+    RequestHedger requestHedger = new RequestHedger(hedgingConfig(1));
+    List<CompletableFuture<String>> attempts = new ArrayList<>();
+    CompletableFuture<String> result = requestHedger.send(BANK_URI, () -> newAttempt(attempts), SUCCESSFUL);
+
+    waitForAttempts(attempts, 2);
+    attempts.get(1).completeExceptionally(new IllegalStateException());
+    Assert.assertFalse(result.isDone());
+    attempts.get(0).complete("primary");
+    Assert.assertEquals(result.get(1, TimeUnit.SECONDS), "primary");
+    Assert.assertEquals(requestHedger.getHedgesWon(), 0);
+  }
+
+  @Test
+  public void verify_HedgesAreLimitedByBudget() throws Exception {
+    RequestHedger requestHedger = new RequestHedger(hedgingConfig(0));
+    List<CompletableFuture<String>> attempts = new ArrayList<>();
+    requestHedger.send(BANK_URI, () -> newAttempt(attempts), SUCCESSFUL);
+    Thread.sleep(200);
+    Assert.assertEquals(attempts.size(), 1);
+    Assert.assertEquals(requestHedger.getHedgesSent(), 0);
+  }
+
+  private static RemoteBanksConfig.Hedging hedgingConfig(int maxBurst) {
+    RemoteBanksConfig.Hedging config = new RemoteBanksConfig.Hedging();
+    config.setEnabled(true);
+    config.setDelayMillis(20);
+    config.setBudgetPercent(0);
+    config.setMaxBurst(maxBurst);
+    return config;
+  }
+
+  private static synchronized CompletableFuture<String> newAttempt(List<CompletableFuture<String>> attempts) {
+    CompletableFuture<String> attempt = new CompletableFuture<>();
+    attempts.add(attempt);
+    return attempt;
+  }
+
+  private static void waitForAttempts(List<CompletableFuture<String>> attempts, int count) throws Exception {
+    long deadline = System.currentTimeMillis() + 1000;
+    while (attempts.size() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Assert.assertEquals(attempts.size(), count);
+  }
+}
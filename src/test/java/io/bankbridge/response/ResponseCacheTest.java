@@ -0,0 +1,32 @@
+package io.bankbridge.response;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ResponseCacheTest {
+
+  @Test
+  public void verify_SameVersionIsServedFromCache() {
+    ResponseCache<String> cache = new ResponseCache<>(10);
+    AtomicInteger renders = new AtomicInteger();
+    Assert.assertEquals(cache.get("size=5", 1, () -> "page-" + renders.incrementAndGet()), "page-1");
+    Assert.assertEquals(cache.get("size=5", 1, () -> "page-" + renders.incrementAndGet()), "page-1");
+    Assert.assertEquals(cache.get("size=5", 2, () -> "page-" + renders.incrementAndGet()), "page-2");
+    Assert.assertEquals(cache.getHits(), 1);
+    Assert.assertEquals(cache.getMisses(), 2);
+  }
+
+  @Test
+  public void verify_LeastRecentlyUsedEntryIsEvicted() {
+    ResponseCache<String> cache = new ResponseCache<>(2);
+    cache.get("a", 1, () -> "a");
+    cache.get("b", 1, () -> "b");
+    cache.get("a", 1, () -> "a again");
+    cache.get("c", 1, () -> "c");
+    Assert.assertEquals(cache.size(), 2);
+    Assert.assertEquals(cache.get("a", 1, () -> "a again"), "a");
+    Assert.assertEquals(cache.get("b", 1, () -> "b again"), "b again");
+  }
+}